@@ -2,9 +2,11 @@ package io.bootify.my_tiendita;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class MyTienditaApplication {
 
     public static void main(final String[] args) {
@@ -2,6 +2,9 @@ package io.bootify.my_tiendita.admin;
 
 import io.bootify.my_tiendita.usuario.UsuarioService;
 import io.bootify.my_tiendita.bodega.BodegaService;
+import io.bootify.my_tiendita.pedido.ExpiracionPedidos;
+import io.bootify.my_tiendita.pedido.PedidoService;
+import io.bootify.my_tiendita.pedido.ProcesadorPedidoOutbox;
 import io.bootify.my_tiendita.producto.ProductoService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -9,6 +12,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
 
 
 @Controller
@@ -19,14 +25,23 @@ public class AdminController {
     private final UsuarioService usuarioService;
     private final BodegaService bodegaService;
     private final ProductoService productoService;
+    private final PedidoService pedidoService;
+    private final ProcesadorPedidoOutbox procesadorOutbox;
+    private final ExpiracionPedidos expiracionPedidos;
 
     public AdminController(
             final UsuarioService usuarioService,
             final BodegaService bodegaService,
-            final ProductoService productoService) {
+            final ProductoService productoService,
+            final PedidoService pedidoService,
+            final ProcesadorPedidoOutbox procesadorOutbox,
+            final ExpiracionPedidos expiracionPedidos) {
         this.usuarioService = usuarioService;
         this.bodegaService = bodegaService;
         this.productoService = productoService;
+        this.pedidoService = pedidoService;
+        this.procesadorOutbox = procesadorOutbox;
+        this.expiracionPedidos = expiracionPedidos;
     }
 
     // ========== VISTA: DASHBOARD ==========
@@ -78,5 +93,20 @@ public class AdminController {
     public String gestionSolicitudes() {
         return "admin/solicitudes-bodegueros";
     }
-    
+
+    // ========== MÉTRICA: PRECARGA DE COLAS DE PEDIDOS ==========
+    @GetMapping("/metricas/colas-pedidos")
+    @ResponseBody
+    public Map<String, Object> estadoPrecargaColas() {
+        Map<String, Object> estado = pedidoService.estadoPrecargaColas();
+        estado.put("pedidosConExpiracion", expiracionPedidos.programados());
+        return estado;
+    }
+
+    // ========== MÉTRICA: RETRASO DEL PASO PEDIDO -> VENTA (OUTBOX) ==========
+    @GetMapping("/metricas/outbox-ventas")
+    @ResponseBody
+    public Map<String, Object> estadoOutboxVentas() {
+        return procesadorOutbox.estado();
+    }
 }
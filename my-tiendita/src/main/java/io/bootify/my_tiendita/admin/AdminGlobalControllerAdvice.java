@@ -1,6 +1,6 @@
 package io.bootify.my_tiendita.admin; // O el paquete donde tengas tus controllers admin
 
-import io.bootify.my_tiendita.notificacion.NotificacionRepository;
+import io.bootify.my_tiendita.notificacion.NotificacionService;
 import io.bootify.my_tiendita.usuario.UsuarioRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -10,11 +10,11 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 @ControllerAdvice(basePackages = "io.bootify.my_tiendita.admin") // Solo afecta al paquete admin
 public class AdminGlobalControllerAdvice {
 
-    private final NotificacionRepository notificacionRepository;
+    private final NotificacionService notificacionService;
     private final UsuarioRepository usuarioRepository;
 
-    public AdminGlobalControllerAdvice(NotificacionRepository notificacionRepository, UsuarioRepository usuarioRepository) {
-        this.notificacionRepository = notificacionRepository;
+    public AdminGlobalControllerAdvice(NotificacionService notificacionService, UsuarioRepository usuarioRepository) {
+        this.notificacionService = notificacionService;
         this.usuarioRepository = usuarioRepository;
     }
 
@@ -25,7 +25,8 @@ public class AdminGlobalControllerAdvice {
             String email = auth.getName();
             // Buscamos al usuario logueado para sacar su ID
             return usuarioRepository.findByEmail(email)
-                    .map(usuario -> notificacionRepository.countByUsuarioDestinoIdAndLeidoFalse(usuario.getId()))
+                    // Contador en memoria: no hace COUNT en cada página
+                    .map(usuario -> notificacionService.contarNoLeidas(usuario.getId()))
                     .orElse(0L);
         }
         return 0L;
@@ -17,7 +17,9 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
-@Table(name = "Bodegas")
+@Table(name = "Bodegas", indexes = {
+        @Index(name = "idx_bodegas_activo_lat_lng", columnList = "activo, latitud, longitud")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
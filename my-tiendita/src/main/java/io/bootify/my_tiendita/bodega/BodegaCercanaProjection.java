@@ -0,0 +1,24 @@
+package io.bootify.my_tiendita.bodega;
+
+/**
+ * Proyección liviana de Bodega con solo los campos que necesita el mapa del cliente.
+ * Evita hidratar la entidad completa (y el proxy de usuario) en cada búsqueda.
+ */
+public interface BodegaCercanaProjection {
+
+    Long getId();
+
+    String getNombre();
+
+    String getDireccion();
+
+    String getDistrito();
+
+    String getTelefono();
+
+    String getHorario();
+
+    Double getLatitud();
+
+    Double getLongitud();
+}
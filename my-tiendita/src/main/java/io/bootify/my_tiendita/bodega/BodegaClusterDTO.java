@@ -0,0 +1,27 @@
+package io.bootify.my_tiendita.bodega;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Grupo de bodegas pre-agregado para el mapa del cliente.
+ * Si el grupo tiene una sola bodega, bodegaId indica cuál es.
+ */
+@Getter
+@Setter
+public class BodegaClusterDTO {
+
+    private int cantidad;
+
+    // Centroide del grupo
+    private double latitud;
+    private double longitud;
+
+    // Límites del grupo
+    private double latMin;
+    private double latMax;
+    private double lngMin;
+    private double lngMax;
+
+    private Long bodegaId;
+}
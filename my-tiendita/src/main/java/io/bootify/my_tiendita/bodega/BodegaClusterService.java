@@ -0,0 +1,151 @@
+package io.bootify.my_tiendita.bodega;
+
+import io.bootify.my_tiendita.estructuras.IndiceEspacialBodegas;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrupa las bodegas del índice espacial en clusters por nivel de zoom.
+ *
+ * El mundo se divide en teselas de 360/2^zoom grados y cada tesela en una grilla
+ * de SUBDIVISIONES x SUBDIVISIONES; las bodegas de una misma subcelda forman un cluster.
+ * El resultado de cada tesela se guarda en caché y se invalida cuando cambia
+ * la versión del índice espacial.
+ */
+@Service
+public class BodegaClusterService {
+
+    public static final int ZOOM_MAX = 20;
+    private static final int SUBDIVISIONES = 8;
+    private static final int MAX_TESELAS_POR_CONSULTA = 256;
+    private static final int MAX_TESELAS_EN_CACHE = 10_000;
+
+    private final IndiceEspacialBodegas indiceEspacial;
+
+    // Mapa: clave (zoom, teselaX, teselaY) -> clusters calculados para esa tesela
+    private final Map<Long, TeselaCache> cache = new ConcurrentHashMap<>();
+
+    public BodegaClusterService(final IndiceEspacialBodegas indiceEspacial) {
+        this.indiceEspacial = indiceEspacial;
+    }
+
+    /**
+     * Devuelve los clusters de todas las teselas que cruzan el rectángulo visible.
+     */
+    public List<BodegaClusterDTO> obtenerClusters(double latMin, double latMax,
+                                                  double lngMin, double lngMax, int zoom) {
+        if (zoom < 0 || zoom > ZOOM_MAX) {
+            throw new IllegalArgumentException("El zoom debe estar entre 0 y " + ZOOM_MAX);
+        }
+        if (latMin > latMax || lngMin > lngMax) {
+            throw new IllegalArgumentException("El bbox debe tener la forma oeste,sur,este,norte");
+        }
+
+        double tamTesela = 360.0 / (1L << zoom);
+        int xMin = teselaX(Math.max(lngMin, -180), tamTesela);
+        int xMax = teselaX(Math.min(lngMax, 180 - 1e-9), tamTesela);
+        int yMin = teselaY(Math.max(latMin, -90), tamTesela);
+        int yMax = teselaY(Math.min(latMax, 90 - 1e-9), tamTesela);
+
+        if ((long) (xMax - xMin + 1) * (yMax - yMin + 1) > MAX_TESELAS_POR_CONSULTA) {
+            throw new IllegalArgumentException("El área solicitada es demasiado grande para este zoom");
+        }
+
+        long version = indiceEspacial.version();
+        List<BodegaClusterDTO> resultado = new ArrayList<>();
+        for (int y = yMin; y <= yMax; y++) {
+            for (int x = xMin; x <= xMax; x++) {
+                resultado.addAll(clustersDeTesela(zoom, x, y, tamTesela, version));
+            }
+        }
+        return resultado;
+    }
+
+    private List<BodegaClusterDTO> clustersDeTesela(int zoom, int x, int y, double tamTesela, long version) {
+        long clave = ((long) zoom << 58) | ((long) y << 29) | x;
+        TeselaCache enCache = cache.get(clave);
+        if (enCache != null && enCache.version() == version) {
+            return enCache.clusters();
+        }
+
+        List<BodegaClusterDTO> clusters = calcularTesela(x, y, tamTesela);
+        if (cache.size() >= MAX_TESELAS_EN_CACHE) {
+            cache.clear();
+        }
+        cache.put(clave, new TeselaCache(version, clusters));
+        return clusters;
+    }
+
+    private List<BodegaClusterDTO> calcularTesela(int x, int y, double tamTesela) {
+        double lngOeste = x * tamTesela - 180;
+        double latSur = y * tamTesela - 90;
+        double tamSubcelda = tamTesela / SUBDIVISIONES;
+
+        Map<Integer, Acumulador> porSubcelda = new HashMap<>();
+        // Rango semiabierto [oeste, oeste + tam) para que una bodega caiga en una sola tesela
+        double lngEste = Math.nextDown(lngOeste + tamTesela);
+        double latNorte = Math.nextDown(latSur + tamTesela);
+        indiceEspacial.recorrer(latSur, latNorte, lngOeste, lngEste, (id, lat, lng) -> {
+            int sx = Math.min((int) ((lng - lngOeste) / tamSubcelda), SUBDIVISIONES - 1);
+            int sy = Math.min((int) ((lat - latSur) / tamSubcelda), SUBDIVISIONES - 1);
+            porSubcelda.computeIfAbsent(sy * SUBDIVISIONES + sx, k -> new Acumulador()).agregar(id, lat, lng);
+        });
+
+        List<BodegaClusterDTO> clusters = new ArrayList<>(porSubcelda.size());
+        for (Acumulador acc : porSubcelda.values()) {
+            clusters.add(acc.toDTO());
+        }
+        return List.copyOf(clusters);
+    }
+
+    private static int teselaX(double lng, double tamTesela) {
+        return (int) Math.floor((lng + 180) / tamTesela);
+    }
+
+    private static int teselaY(double lat, double tamTesela) {
+        return (int) Math.floor((lat + 90) / tamTesela);
+    }
+
+    private record TeselaCache(long version, List<BodegaClusterDTO> clusters) {
+    }
+
+    private static final class Acumulador {
+        private int cantidad;
+        private long ultimoId;
+        private double sumaLat;
+        private double sumaLng;
+        private double latMin = Double.POSITIVE_INFINITY;
+        private double latMax = Double.NEGATIVE_INFINITY;
+        private double lngMin = Double.POSITIVE_INFINITY;
+        private double lngMax = Double.NEGATIVE_INFINITY;
+
+        void agregar(long id, double lat, double lng) {
+            cantidad++;
+            ultimoId = id;
+            sumaLat += lat;
+            sumaLng += lng;
+            latMin = Math.min(latMin, lat);
+            latMax = Math.max(latMax, lat);
+            lngMin = Math.min(lngMin, lng);
+            lngMax = Math.max(lngMax, lng);
+        }
+
+        BodegaClusterDTO toDTO() {
+            BodegaClusterDTO dto = new BodegaClusterDTO();
+            dto.setCantidad(cantidad);
+            dto.setLatitud(sumaLat / cantidad);
+            dto.setLongitud(sumaLng / cantidad);
+            dto.setLatMin(latMin);
+            dto.setLatMax(latMax);
+            dto.setLngMin(lngMin);
+            dto.setLngMax(lngMax);
+            dto.setBodegaId(cantidad == 1 ? ultimoId : null);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.bootify.my_tiendita.bodega;
+
+/**
+ * Proyección de bodega cercana con la distancia ya calculada por la base de datos.
+ */
+public interface BodegaDistanciaProjection extends BodegaCercanaProjection {
+
+    Double getDistanciaKm();
+}
@@ -0,0 +1,71 @@
+package io.bootify.my_tiendita.bodega;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Feed binario compacto con la ubicación de todas las bodegas activas.
+ *
+ * Formato (little-endian):
+ *   int32 cantidad
+ *   cantidad x { int32 id, int32 latitud * 1e6, int32 longitud * 1e6 }
+ *
+ * 12 bytes por bodega frente a los ~10 campos JSON de BodegaCercanaDTO; el
+ * cliente lo descarga una vez y filtra localmente. El ETag se deriva del
+ * lastUpdated más reciente y del total de bodegas (para notar eliminaciones).
+ */
+@Service
+public class BodegaFeedService {
+
+    private static final int BYTES_POR_BODEGA = 12;
+    private static final double MICROGRADOS = 1_000_000.0;
+
+    private final BodegaRepository bodegaRepository;
+
+    // Último feed armado; se reutiliza mientras el ETag no cambie
+    private volatile Feed ultimo;
+
+    public BodegaFeedService(final BodegaRepository bodegaRepository) {
+        this.bodegaRepository = bodegaRepository;
+    }
+
+    /**
+     * ETag fuerte calculado sin leer las bodegas (MAX(lastUpdated) + COUNT).
+     */
+    @Transactional(readOnly = true)
+    public String calcularEtag() {
+        OffsetDateTime maxActualizado = bodegaRepository.findMaxLastUpdated();
+        long total = bodegaRepository.count();
+        long marca = maxActualizado != null ? maxActualizado.toInstant().toEpochMilli() : 0L;
+        return "\"" + Long.toHexString(marca) + "-" + Long.toHexString(total) + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] obtenerFeed(String etag) {
+        Feed feed = ultimo;
+        if (feed != null && feed.etag().equals(etag)) {
+            return feed.datos();
+        }
+
+        List<BodegaUbicacionProjection> ubicaciones = bodegaRepository.findUbicacionesActivas();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + ubicaciones.size() * BYTES_POR_BODEGA)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ubicaciones.size());
+        for (BodegaUbicacionProjection u : ubicaciones) {
+            buffer.putInt(Math.toIntExact(u.getId()));
+            buffer.putInt((int) Math.round(u.getLatitud() * MICROGRADOS));
+            buffer.putInt((int) Math.round(u.getLongitud() * MICROGRADOS));
+        }
+
+        byte[] datos = buffer.array();
+        ultimo = new Feed(etag, datos);
+        return datos;
+    }
+
+    private record Feed(String etag, byte[] datos) {}
+}
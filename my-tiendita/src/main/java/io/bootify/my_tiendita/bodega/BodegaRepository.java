@@ -1,8 +1,12 @@
 package io.bootify.my_tiendita.bodega;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 
 public interface BodegaRepository extends JpaRepository<Bodega, Long> {
@@ -10,6 +14,50 @@ public interface BodegaRepository extends JpaRepository<Bodega, Long> {
     List<Bodega> findAllByActivoTrue();
 
     List<Bodega> findByDistritoIgnoreCase(String distrito);
-    
+
+    // --- Búsqueda geográfica (mapa del cliente) ---
+
+    // Prefiltro por caja envolvente, resuelto con el índice (activo, latitud, longitud)
+    @Query("SELECT b.id AS id, b.nombre AS nombre, b.direccion AS direccion, b.distrito AS distrito, " +
+           "b.telefono AS telefono, b.horario AS horario, b.latitud AS latitud, b.longitud AS longitud " +
+           "FROM Bodega b " +
+           "WHERE b.activo = true " +
+           "AND b.latitud BETWEEN :latMin AND :latMax " +
+           "AND b.longitud BETWEEN :lngMin AND :lngMax")
+    List<BodegaCercanaProjection> findActivasEnRango(@Param("latMin") Double latMin,
+                                                     @Param("latMax") Double latMax,
+                                                     @Param("lngMin") Double lngMin,
+                                                     @Param("lngMax") Double lngMax);
+
+    @Query("SELECT b.id AS id, b.nombre AS nombre, b.direccion AS direccion, b.distrito AS distrito, " +
+           "b.telefono AS telefono, b.horario AS horario, b.latitud AS latitud, b.longitud AS longitud " +
+           "FROM Bodega b " +
+           "WHERE b.activo = true AND b.id IN :ids")
+    List<BodegaCercanaProjection> findActivasByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Distancia resuelta en MySQL: el índice SPATIAL filtra por la caja y ST_Distance_Sphere ordena
+    @Query(value = "SELECT b.id AS id, b.nombre AS nombre, b.direccion AS direccion, b.distrito AS distrito, " +
+           "b.telefono AS telefono, b.horario AS horario, b.latitud AS latitud, b.longitud AS longitud, " +
+           "ST_Distance_Sphere(b.ubicacion, ST_GeomFromText(:punto, 4326, 'axis-order=long-lat')) / 1000 AS distanciaKm " +
+           "FROM bodegas b " +
+           "WHERE b.activo = 1 " +
+           "AND MBRContains(ST_GeomFromText(:caja, 4326, 'axis-order=long-lat'), b.ubicacion) " +
+           "AND ST_Distance_Sphere(b.ubicacion, ST_GeomFromText(:punto, 4326, 'axis-order=long-lat')) <= :radioMetros " +
+           "ORDER BY distanciaKm ASC",
+           nativeQuery = true)
+    List<BodegaDistanciaProjection> findCercanasPorDistanciaEsferica(@Param("punto") String punto,
+                                                                     @Param("caja") String caja,
+                                                                     @Param("radioMetros") double radioMetros);
+
+    // --- Feed binario de ubicaciones ---
+
+    @Query("SELECT b.id AS id, b.latitud AS latitud, b.longitud AS longitud " +
+           "FROM Bodega b " +
+           "WHERE b.activo = true AND b.latitud IS NOT NULL AND b.longitud IS NOT NULL " +
+           "ORDER BY b.id")
+    List<BodegaUbicacionProjection> findUbicacionesActivas();
+
+    @Query("SELECT MAX(b.lastUpdated) FROM Bodega b")
+    OffsetDateTime findMaxLastUpdated();
 
 }
@@ -1,5 +1,7 @@
 package io.bootify.my_tiendita.bodega;
 
+import io.bootify.my_tiendita.estructuras.IndiceCoberturaDelivery;
+import io.bootify.my_tiendita.estructuras.IndiceEspacialBodegas;
 import io.bootify.my_tiendita.events.BeforeDeleteBodega;
 import io.bootify.my_tiendita.pago.BodegaMetodoPago;
 import io.bootify.my_tiendita.pago.BodegaMetodoPagoRepository;
@@ -8,7 +10,10 @@ import io.bootify.my_tiendita.usuario.Usuario;
 import io.bootify.my_tiendita.usuario.UsuarioRepository;
 import io.bootify.my_tiendita.usuario.UsuarioService;
 import io.bootify.my_tiendita.util.CustomCollectors;
+import io.bootify.my_tiendita.util.GazetteerDistritos;
 import io.bootify.my_tiendita.util.NotFoundException;
+import io.bootify.my_tiendita.util.TransaccionUtils;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
@@ -32,19 +37,58 @@ public class BodegaService {
     // ✅ Repositorios necesarios para inicializar pagos
     private final BodegaMetodoPagoRepository bodegaMetodoPagoRepository;
     private final TipoMetodoPagoRepository tipoMetodoPagoRepository;
+    private final IndiceEspacialBodegas indiceEspacial;
+    private final IndiceCoberturaDelivery indiceCobertura;
+    private final GazetteerDistritos gazetteer;
 
     public BodegaService(final BodegaRepository bodegaRepository,
                          final UsuarioRepository usuarioRepository,
                          final ApplicationEventPublisher publisher,
                          final UsuarioService usuarioService,
                          final BodegaMetodoPagoRepository bodegaMetodoPagoRepository,
-                         final TipoMetodoPagoRepository tipoMetodoPagoRepository) {
+                         final TipoMetodoPagoRepository tipoMetodoPagoRepository,
+                         final IndiceEspacialBodegas indiceEspacial,
+                         final IndiceCoberturaDelivery indiceCobertura,
+                         final GazetteerDistritos gazetteer) {
         this.bodegaRepository = bodegaRepository;
         this.usuarioRepository = usuarioRepository;
         this.publisher = publisher;
         this.usuarioService = usuarioService;
         this.bodegaMetodoPagoRepository = bodegaMetodoPagoRepository;
         this.tipoMetodoPagoRepository = tipoMetodoPagoRepository;
+        this.indiceEspacial = indiceEspacial;
+        this.indiceCobertura = indiceCobertura;
+        this.gazetteer = gazetteer;
+    }
+
+    @PostConstruct
+    public void inicializarIndiceEspacial() {
+        indiceEspacial.limpiar();
+        for (Bodega bodega : bodegaRepository.findAllByActivoTrue()) {
+            sincronizarIndiceEspacial(bodega);
+        }
+        LOGGER.info("🗺️ Índice espacial inicializado con {} bodegas activas", indiceEspacial.tamanio());
+    }
+
+    /**
+     * Refleja en los índices geográficos la ubicación y el estado actual de la bodega.
+     * El radio de reparto lo registra BodegaConfigService; aquí solo se mueve el centro.
+     * Dentro de una transacción se aplica tras el commit, con los valores de este momento.
+     */
+    public void sincronizarIndiceEspacial(final Bodega bodega) {
+        final Long id = bodega.getId();
+        final Double latitud = bodega.getLatitud();
+        final Double longitud = bodega.getLongitud();
+        final boolean visible = Boolean.TRUE.equals(bodega.getActivo()) && latitud != null && longitud != null;
+        TransaccionUtils.despuesDelCommit(() -> {
+            if (visible) {
+                indiceEspacial.actualizar(id, latitud, longitud);
+                indiceCobertura.reubicar(id, latitud, longitud);
+            } else {
+                indiceEspacial.eliminar(id);
+                indiceCobertura.eliminar(id);
+            }
+        });
     }
 
     // ======================================
@@ -89,6 +133,7 @@ public class BodegaService {
         
         // ✅ Inicializar métodos de pago por defecto
         inicializarMetodosPago(bodegaGuardada);
+        sincronizarIndiceEspacial(bodegaGuardada);
 
         return bodegaGuardada.getId();
     }
@@ -128,12 +173,18 @@ public class BodegaService {
         }
 
         bodegaRepository.save(bodega);
+        sincronizarIndiceEspacial(bodega);
     }
 
     @Transactional
     public void delete(final Long id) {
         publisher.publishEvent(new BeforeDeleteBodega(id));
         bodegaRepository.deleteById(id);
+        // Si el borrado falla (p. ej. por FK), la bodega sigue apareciendo en las búsquedas
+        TransaccionUtils.despuesDelCommit(() -> {
+            indiceEspacial.eliminar(id);
+            indiceCobertura.eliminar(id);
+        });
     }
 
     // ======================================
@@ -184,6 +235,7 @@ public class BodegaService {
         
         // ✅ Inicializar métodos de pago por defecto
         inicializarMetodosPago(bodegaGuardada);
+        sincronizarIndiceEspacial(bodegaGuardada);
         
         // Actualizar lado inverso
         bodeguero.getBodegas().add(bodegaEntity);
@@ -297,6 +349,12 @@ public class BodegaService {
         bodega.setTelefono(dto.getTelefono());
         bodega.setDistrito(dto.getDistrito());
         bodega.setHorario(dto.getHorario());
+
+        // Distrito vacío: se resuelve con el nomenclátor local, sin llamar a Google
+        if ((dto.getDistrito() == null || dto.getDistrito().isBlank())
+                && dto.getLatitud() != null && dto.getLongitud() != null) {
+            bodega.setDistrito(gazetteer.resolver(dto.getLatitud(), dto.getLongitud()));
+        }
         return bodega;
     }
 
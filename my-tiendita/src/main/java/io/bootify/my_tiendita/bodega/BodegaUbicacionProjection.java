@@ -0,0 +1,10 @@
+package io.bootify.my_tiendita.bodega;
+
+/**
+ * Solo id y coordenadas: lo mínimo para el feed binario de ubicaciones.
+ */
+public interface BodegaUbicacionProjection {
+    Long getId();
+    Double getLatitud();
+    Double getLongitud();
+}
@@ -0,0 +1,47 @@
+package io.bootify.my_tiendita.bodega;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea la columna espacial de Bodegas cuando la búsqueda usa la estrategia "mysql".
+ *
+ * La columna es generada (STORED) a partir de latitud/longitud, así MySQL la mantiene
+ * sincronizada en cada INSERT/UPDATE que hagan BodegaService o BodegaConfigService,
+ * y puede llevar un índice SPATIAL (requiere NOT NULL y SRID fijo).
+ */
+@Component
+@ConditionalOnProperty(name = "bodegas.cercanas.estrategia", havingValue = "mysql")
+public class EsquemaUbicacionBodegas {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EsquemaUbicacionBodegas.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EsquemaUbicacionBodegas(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void crearColumnaEspacial() {
+        Integer existe = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'bodegas' AND COLUMN_NAME = 'ubicacion'",
+                Integer.class);
+        if (existe != null && existe > 0) {
+            return;
+        }
+
+        jdbcTemplate.execute(
+                "ALTER TABLE bodegas " +
+                "ADD COLUMN ubicacion POINT SRID 4326 " +
+                "GENERATED ALWAYS AS (ST_SRID(POINT(longitud, latitud), 4326)) STORED NOT NULL, " +
+                "ADD SPATIAL INDEX idx_bodegas_ubicacion (ubicacion)");
+        LOGGER.info("🗺️ Columna espacial 'ubicacion' creada en bodegas");
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Setter;
 import java.math.BigDecimal;
 
 import io.bootify.my_tiendita.bodega.Bodega;
+import io.bootify.my_tiendita.model.PoliticaCola;
 
 @Entity
 @Getter
@@ -32,4 +33,16 @@ public class BodegaConfig {
     @Column(precision = 10, scale = 2)
     private BigDecimal pedidoMinimoDelivery; 
 
+    // REGLAS DE LA COLA DE PEDIDOS (null = FIFO)
+    @Enumerated(EnumType.STRING)
+    private PoliticaCola politicaCola;
+
+    // Minutos desde la creación en que se espera atender cada tipo de pedido (modo PRIORIDAD)
+    private Integer minutosObjetivoDelivery;
+
+    private Integer minutosObjetivoRecojo;
+
+    // Minutos que un pedido puede seguir PENDIENTE antes de cancelarse solo (null = valor global, 0 = nunca)
+    private Integer minutosExpiracionPedido;
+
 }
\ No newline at end of file
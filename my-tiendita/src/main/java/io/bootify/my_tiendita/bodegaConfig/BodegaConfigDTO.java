@@ -1,6 +1,9 @@
 package io.bootify.my_tiendita.bodegaConfig;
 
+import io.bootify.my_tiendita.model.PoliticaCola;
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
@@ -34,6 +37,7 @@ public class BodegaConfigDTO {
     private Boolean realizaDelivery;
 
     @DecimalMin("0.0")
+    @DecimalMax("50.0") // = BodegaConfigService.RADIO_SIN_LIMITE_KM
     private BigDecimal radioMaximoKm;
 
     @DecimalMin("0.0")
@@ -43,4 +47,16 @@ public class BodegaConfigDTO {
     private BigDecimal pedidoMinimoDelivery;
     
     private Integer tiempoEntregaMinutos;
+
+    // --- 3. COLA DE PEDIDOS ---
+    private PoliticaCola politicaCola;
+
+    @Min(1)
+    private Integer minutosObjetivoDelivery;
+
+    @Min(1)
+    private Integer minutosObjetivoRecojo;
+
+    @Min(0)
+    private Integer minutosExpiracionPedido;
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package io.bootify.my_tiendita.bodegaConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BodegaConfigRepository extends JpaRepository<BodegaConfig, Long> {
     Optional<BodegaConfig> findByBodegaId(Long bodegaId);
-}
\ No newline at end of file
+
+    // Todas las configuraciones con su bodega (para las cachés en memoria)
+    @Query("SELECT c FROM BodegaConfig c JOIN FETCH c.bodega")
+    List<BodegaConfig> findAllConBodega();
+}
@@ -1,20 +1,123 @@
 package io.bootify.my_tiendita.bodegaConfig;
 
 import io.bootify.my_tiendita.bodega.Bodega;
+import io.bootify.my_tiendita.bodega.BodegaCercanaProjection;
 import io.bootify.my_tiendita.bodega.BodegaRepository;
+import io.bootify.my_tiendita.bodega.BodegaService;
+import io.bootify.my_tiendita.estructuras.GestorColasPedidos;
+import io.bootify.my_tiendita.estructuras.IndiceCoberturaDelivery;
+import io.bootify.my_tiendita.estructuras.IndiceEspacialBodegas;
+import io.bootify.my_tiendita.estructuras.PedidoEnCola;
+import io.bootify.my_tiendita.events.BeforeDeleteBodega;
+import io.bootify.my_tiendita.model.PoliticaCola;
+import io.bootify.my_tiendita.util.GeoUtils;
 import io.bootify.my_tiendita.util.NotFoundException;
+import io.bootify.my_tiendita.util.TransaccionUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class BodegaConfigService {
 
+    private static final Logger log = LoggerFactory.getLogger(BodegaConfigService.class);
+
     private final BodegaConfigRepository bodegaConfigRepository;
     private final BodegaRepository bodegaRepository;
+    private final BodegaService bodegaService;
+    private final IndiceCoberturaDelivery indiceCobertura;
+    private final IndiceEspacialBodegas indiceEspacial;
+    private final GestorColasPedidos gestorColas;
+
+    // Mapa: ID Bodega -> reglas de delivery vigentes
+    private final Map<Long, TarifaDelivery> tarifas = new ConcurrentHashMap<>();
 
-    public BodegaConfigService(BodegaConfigRepository bodegaConfigRepository, BodegaRepository bodegaRepository) {
+    // Radio usado en el índice cuando la bodega reparte sin límite configurado;
+    // también es el tope del radio configurable (cada km más agranda el índice)
+    static final double RADIO_SIN_LIMITE_KM = 50.0;
+
+    public BodegaConfigService(BodegaConfigRepository bodegaConfigRepository,
+                               BodegaRepository bodegaRepository,
+                               BodegaService bodegaService,
+                               IndiceCoberturaDelivery indiceCobertura,
+                               IndiceEspacialBodegas indiceEspacial,
+                               GestorColasPedidos gestorColas) {
         this.bodegaConfigRepository = bodegaConfigRepository;
         this.bodegaRepository = bodegaRepository;
+        this.bodegaService = bodegaService;
+        this.indiceCobertura = indiceCobertura;
+        this.indiceEspacial = indiceEspacial;
+        this.gestorColas = gestorColas;
+    }
+
+    @PostConstruct
+    public void inicializarIndiceCobertura() {
+        indiceCobertura.limpiar();
+        tarifas.clear();
+        List<BodegaConfig> configs = bodegaConfigRepository.findAllConBodega();
+        for (BodegaConfig config : configs) {
+            sincronizarCobertura(config.getBodega(), config);
+        }
+        log.info("Índice de cobertura de delivery inicializado ({} bodegas).", indiceCobertura.tamanio());
+    }
+
+    /**
+     * Bodega eliminada: su tarifa sale de memoria (el índice lo limpia BodegaService.delete).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(final BeforeDeleteBodega event) {
+        tarifas.remove(event.getId());
+    }
+
+    /**
+     * Matriz distancia/tarifa: en una sola pasada sobre las tarifas en memoria
+     * calcula distancia, si está en rango, costo de delivery y pedido mínimo
+     * de cada bodega cercana al cliente.
+     */
+    public List<CotizacionDeliveryDTO> cotizarDelivery(double lat, double lng, double radioKm) {
+        List<Long> candidatos = indiceEspacial.buscarCandidatos(lat, lng, radioKm);
+        if (candidatos.isEmpty()) {
+            return List.of();
+        }
+
+        List<CotizacionDeliveryDTO> cotizaciones = new ArrayList<>(candidatos.size());
+        for (BodegaCercanaProjection bodega : bodegaRepository.findActivasByIdIn(candidatos)) {
+            double distancia = GeoUtils.calcularDistanciaKm(bodega.getLatitud(), bodega.getLongitud(), lat, lng);
+            BigDecimal distanciaKm = BigDecimal.valueOf(distancia);
+            TarifaDelivery tarifa = tarifas.get(bodega.getId());
+
+            CotizacionDeliveryDTO dto = new CotizacionDeliveryDTO();
+            dto.setBodegaId(bodega.getId());
+            dto.setNombre(bodega.getNombre());
+            dto.setDistanciaKm(distanciaKm);
+
+            if (tarifa != null && tarifa.realizaDelivery()) {
+                // Mismas reglas que PedidoService.validarPreCheckout
+                dto.setRealizaDelivery(true);
+                dto.setRadioMaximoKm(tarifa.radioMaximoKm());
+                dto.setDentroDeRango(tarifa.radioMaximoKm() == null
+                        || distanciaKm.compareTo(tarifa.radioMaximoKm()) <= 0);
+                dto.setPedidoMinimoDelivery(tarifa.pedidoMinimoDelivery());
+                dto.setCostoDelivery(tarifa.precioPorKm() != null
+                        ? tarifa.precioPorKm().multiply(distanciaKm).setScale(2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO);
+            }
+            cotizaciones.add(dto);
+        }
+
+        cotizaciones.sort(Comparator.comparing(CotizacionDeliveryDTO::getDistanciaKm));
+        return cotizaciones;
     }
 
     public BodegaConfigDTO obtenerConfiguracion(Long bodegaId) {
@@ -43,6 +146,7 @@ public class BodegaConfigService {
         bodega.setLongitud(dto.getLongitud());
         
         bodegaRepository.save(bodega);
+        bodegaService.sincronizarIndiceEspacial(bodega);
 
         BodegaConfig config = bodegaConfigRepository.findByBodegaId(bodegaId)
                 .orElse(new BodegaConfig());
@@ -55,8 +159,46 @@ public class BodegaConfigService {
         config.setRadioMaximoKm(dto.getRadioMaximoKm());
         config.setPrecioPorKm(dto.getPrecioPorKm());
         config.setPedidoMinimoDelivery(dto.getPedidoMinimoDelivery());
+        config.setPoliticaCola(dto.getPoliticaCola());
+        config.setMinutosObjetivoDelivery(dto.getMinutosObjetivoDelivery());
+        config.setMinutosObjetivoRecojo(dto.getMinutosObjetivoRecojo());
+        config.setMinutosExpiracionPedido(dto.getMinutosExpiracionPedido());
 
         bodegaConfigRepository.save(config);
+        sincronizarCobertura(bodega, config);
+        // La cola en memoria se reordena con la nueva política, solo si se guarda
+        Comparator<PedidoEnCola> orden = GestorColasPedidos.ordenPara(
+                config.getPoliticaCola(), config.getMinutosObjetivoDelivery(), config.getMinutosObjetivoRecojo());
+        TransaccionUtils.despuesDelCommit(() -> gestorColas.configurarOrden(bodegaId, orden));
+    }
+
+    /**
+     * Refleja en el índice de cobertura y en las tarifas el reparto actual de la bodega;
+     * si no reparte, sale de ambos. Dentro de una transacción se aplica tras el commit.
+     */
+    private void sincronizarCobertura(Bodega bodega, BodegaConfig config) {
+        Long bodegaId = bodega.getId();
+        boolean reparte = Boolean.TRUE.equals(config.getRealizaDelivery())
+                && Boolean.TRUE.equals(bodega.getActivo())
+                && bodega.getLatitud() != null && bodega.getLongitud() != null;
+        if (!reparte) {
+            TransaccionUtils.despuesDelCommit(() -> {
+                indiceCobertura.eliminar(bodegaId);
+                tarifas.remove(bodegaId);
+            });
+            return;
+        }
+        TarifaDelivery tarifa = TarifaDelivery.de(config);
+        double latitud = bodega.getLatitud();
+        double longitud = bodega.getLongitud();
+        // Recortado por si hay radios mayores guardados antes del tope del DTO
+        double radioKm = config.getRadioMaximoKm() != null
+                ? Math.min(config.getRadioMaximoKm().doubleValue(), RADIO_SIN_LIMITE_KM)
+                : RADIO_SIN_LIMITE_KM;
+        TransaccionUtils.despuesDelCommit(() -> {
+            tarifas.put(bodegaId, tarifa);
+            indiceCobertura.registrar(bodegaId, latitud, longitud, radioKm);
+        });
     }
 
     // Unificamos datos de DOS entidades en UN DTO
@@ -77,6 +219,10 @@ public class BodegaConfigService {
         dto.setRadioMaximoKm(config.getRadioMaximoKm());
         dto.setPrecioPorKm(config.getPrecioPorKm());
         dto.setPedidoMinimoDelivery(config.getPedidoMinimoDelivery());
+        dto.setPoliticaCola(config.getPoliticaCola() != null ? config.getPoliticaCola() : PoliticaCola.FIFO);
+        dto.setMinutosObjetivoDelivery(config.getMinutosObjetivoDelivery());
+        dto.setMinutosObjetivoRecojo(config.getMinutosObjetivoRecojo());
+        dto.setMinutosExpiracionPedido(config.getMinutosExpiracionPedido());
         
         return dto;
     }
@@ -0,0 +1,22 @@
+package io.bootify.my_tiendita.bodegaConfig;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+/**
+ * Fila de la matriz distancia/tarifa: lo que costaría el delivery de una bodega
+ * hasta la ubicación del cliente, sin pasar por el pre-checkout.
+ */
+@Data
+public class CotizacionDeliveryDTO {
+    private Long bodegaId;
+    private String nombre;
+
+    private BigDecimal distanciaKm;
+    private boolean realizaDelivery;
+    private boolean dentroDeRango;
+
+    private BigDecimal radioMaximoKm;
+    private BigDecimal costoDelivery;
+    private BigDecimal pedidoMinimoDelivery;
+}
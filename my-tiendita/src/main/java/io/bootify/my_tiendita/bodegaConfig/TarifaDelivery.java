@@ -0,0 +1,21 @@
+package io.bootify.my_tiendita.bodegaConfig;
+
+import java.math.BigDecimal;
+
+/**
+ * Copia inmutable de las reglas de delivery de una bodega, guardada en memoria
+ * por BodegaConfigService para cotizar sin volver a leer BodegaConfig.
+ */
+public record TarifaDelivery(boolean realizaDelivery,
+                             BigDecimal radioMaximoKm,
+                             BigDecimal precioPorKm,
+                             BigDecimal pedidoMinimoDelivery) {
+
+    static TarifaDelivery de(BodegaConfig config) {
+        return new TarifaDelivery(
+                Boolean.TRUE.equals(config.getRealizaDelivery()),
+                config.getRadioMaximoKm(),
+                config.getPrecioPorKm(),
+                config.getPedidoMinimoDelivery());
+    }
+}
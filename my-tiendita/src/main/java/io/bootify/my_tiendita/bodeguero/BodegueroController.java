@@ -3,12 +3,13 @@ package io.bootify.my_tiendita.bodeguero;
 import io.bootify.my_tiendita.bodega.*;
 import io.bootify.my_tiendita.bodegaConfig.BodegaConfigDTO;
 import io.bootify.my_tiendita.bodegaConfig.BodegaConfigService;
-import io.bootify.my_tiendita.notificacion.Notificacion;
+import io.bootify.my_tiendita.estructuras.NotificacionResumen;
 import io.bootify.my_tiendita.pago.BodegaMetodoPago;
 import io.bootify.my_tiendita.notificacion.NotificacionService; 
 import io.bootify.my_tiendita.pago.BodegaMetodoPagoRepository;
 import io.bootify.my_tiendita.pago.BodegaMetodoPagoService;
 import io.bootify.my_tiendita.pedido.PedidoDTO;
+import io.bootify.my_tiendita.pedido.PedidoEventosSse;
 import io.bootify.my_tiendita.pedido.PedidoService; 
 import io.bootify.my_tiendita.producto_bodega.ProductoBodega;
 import io.bootify.my_tiendita.producto_bodega.ProductoBodegaRepository;
@@ -18,7 +19,10 @@ import io.bootify.my_tiendita.venta.Venta;
 import io.bootify.my_tiendita.venta.VentaRepository;
 import jakarta.validation.Valid;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
@@ -26,14 +30,18 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Controller
@@ -48,6 +56,7 @@ public class BodegueroController {
     private final BodegaMetodoPagoRepository bodegaMetodoPagoRepository;
     private final PedidoService pedidoService;
     private final NotificacionService notificacionService;
+    private final PedidoEventosSse pedidoEventosSse;
 
     public BodegueroController(UsuarioRepository usuarioRepository, 
                                BodegaMetodoPagoService bodegaMetodoPagoService,
@@ -57,7 +66,8 @@ public class BodegueroController {
                                VentaRepository ventaRepository,
                                BodegaMetodoPagoRepository bodegaMetodoPagoRepository,
                                PedidoService pedidoService,
-                               NotificacionService notificacionService) {
+                               NotificacionService notificacionService,
+                               PedidoEventosSse pedidoEventosSse) {
         this.usuarioRepository = usuarioRepository;
         this.bodegaRepository = bodegaRepository;
         this.productoBodegaRepository = productoBodegaRepository;
@@ -67,6 +77,7 @@ public class BodegueroController {
         this.pedidoService = pedidoService;
         this.notificacionService = notificacionService;
         this.bodegaMetodoPagoService = bodegaMetodoPagoService;
+        this.pedidoEventosSse = pedidoEventosSse;
     }
 
     // --- DASHBOARD ---
@@ -110,17 +121,16 @@ public class BodegueroController {
         Bodega bodega = cargarDatosComunes(model, bodegaId);
 
         if (bodega != null) {
-            // 1. Obtener el SIGUIENTE de la Cola (FIFO - Memoria)
-            PedidoDTO siguiente = pedidoService.obtenerSiguientePedidoAAtender(bodega.getId());
-            model.addAttribute("siguientePedido", siguiente);
-
-            // 2. Obtener la lista de espera (FIFO - Memoria)
+            // 1. Obtener la cola completa (FIFO - Memoria, detalle en una sola consulta)
             List<PedidoDTO> colaPendientes = pedidoService.obtenerColaPendientes(bodega.getId());
-            // Si el siguiente ya se muestra en grande, lo quitamos de la lista pequeña visual
-            if (siguiente != null && !colaPendientes.isEmpty() && colaPendientes.get(0).getId().equals(siguiente.getId())) {
-                colaPendientes.remove(0);
-            }
+
+            // 2. El SIGUIENTE es la cabeza de la cola; se muestra en grande y sale de la lista pequeña
+            PedidoDTO siguiente = colaPendientes.isEmpty() ? null : colaPendientes.remove(0);
+            model.addAttribute("siguientePedido", siguiente);
             model.addAttribute("colaEspera", colaPendientes);
+            // Lo que el lote confirmará de verdad: toda la cola, recortada al máximo del servicio
+            model.addAttribute("maximoLote", pedidoService.getMaximoLote());
+            model.addAttribute("tamanioLote", Math.min(colaPendientes.size() + 1, pedidoService.getMaximoLote()));
 
             // 3. Obtener Historial (Base de Datos)
             model.addAttribute("historial", pedidoService.obtenerHistorial(bodega.getId()));
@@ -137,21 +147,102 @@ public class BodegueroController {
             
             // Llama a la lógica que saca de la cola y crea la venta
             pedidoService.confirmarSiguientePedido(bodegaId);
-            flash.addFlashAttribute("success", "¡Pedido atendido! Se generó la venta y descontó stock.");
+            flash.addFlashAttribute("success", "¡Pedido atendido! La venta y el descuento de stock se registran en segundo plano.");
         } catch (Exception e) {
             flash.addFlashAttribute("error", "Error al atender: " + e.getMessage());
         }
         return "redirect:/bodeguero/pedidos?bodegaId=" + bodegaId;
     }
 
-    // ✅ API JSON: NOTIFICACIONES (PILA LIFO)
+    // ✅ ACCIÓN: ATENDER VARIOS PEDIDOS EN UNA SOLA TRANSACCIÓN (horas punta)
+    // Con pedidoIds confirma esos pedidos; si no, los siguientes "cantidad" de la cola.
+    @PostMapping("/bodeguero/pedidos/atender-lote")
+    public String atenderLote(@RequestParam Long bodegaId,
+                              @RequestParam(value = "pedidoIds", required = false) List<Long> pedidoIds,
+                              @RequestParam(value = "cantidad", defaultValue = "5") int cantidad,
+                              RedirectAttributes flash) {
+        try {
+            if (!validarAccesoBodega(bodegaId)) return "redirect:/bodeguero/dashboard";
+
+            int confirmados = pedidoService.confirmarPedidosEnLote(bodegaId, pedidoIds, cantidad);
+            flash.addFlashAttribute("success", "¡" + confirmados + " pedidos atendidos! Se generaron las ventas y se descontó stock.");
+        } catch (Exception e) {
+            flash.addFlashAttribute("error", "Error al atender el lote: " + e.getMessage());
+        }
+        return "redirect:/bodeguero/pedidos?bodegaId=" + bodegaId;
+    }
+
+    // ✅ ACCIÓN: CANCELAR PEDIDO PENDIENTE
+    @PostMapping("/bodeguero/pedidos/cancelar")
+    public String cancelarPedido(@RequestParam Long bodegaId, @RequestParam Long pedidoId, RedirectAttributes flash) {
+        try {
+            if (!validarAccesoBodega(bodegaId)) return "redirect:/bodeguero/dashboard";
+
+            pedidoService.cancelarPedido(bodegaId, pedidoId);
+            flash.addFlashAttribute("success", "Pedido cancelado. Se avisó al cliente.");
+        } catch (Exception e) {
+            flash.addFlashAttribute("error", "Error al cancelar: " + e.getMessage());
+        }
+        return "redirect:/bodeguero/pedidos?bodegaId=" + bodegaId;
+    }
+
+    // ✅ SSE: EVENTOS DE LA COLA (encolado / confirmado / cancelado) en vivo
+    @GetMapping(value = "/bodeguero/pedidos/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter eventosPedidos(@RequestParam Long bodegaId) {
+        if (!validarAccesoBodega(bodegaId)) {
+            throw new AccessDeniedException("No tienes acceso a esta bodega");
+        }
+        return pedidoEventosSse.suscribir(bodegaId);
+    }
+
+    // ✅ API JSON: NOTIFICACIONES (MÁS RECIENTES PRIMERO)
     @GetMapping("/api/notificaciones/mis-alertas")
     @ResponseBody
-    public ResponseEntity<List<Notificacion>> misNotificaciones() {
+    public ResponseEntity<List<NotificacionResumen>> misNotificaciones(
+            @RequestParam(value = "limite", defaultValue = "20") int limite) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         Usuario usuario = usuarioRepository.findByEmailWithBodegas(auth.getName()).orElseThrow();
-        // Devuelve la Pila convertida a Lista
-        return ResponseEntity.ok(notificacionService.obtenerMisNotificaciones(usuario.getId()));
+        // La más reciente primero (buffer en memoria; si se piden más, desde la BD)
+        return ResponseEntity.ok(notificacionService.obtenerMisNotificaciones(usuario.getId(), limiteValido(limite)));
+    }
+
+    // ✅ API JSON: NOTIFICACIONES ANTERIORES ("ver más", paginado por keyset)
+    @GetMapping("/api/notificaciones/anteriores")
+    @ResponseBody
+    public ResponseEntity<List<NotificacionResumen>> notificacionesAnteriores(
+            @RequestParam("antesDe") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime antesDe,
+            @RequestParam("antesId") Long antesId,
+            @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Usuario usuario = usuarioRepository.findByEmailWithBodegas(auth.getName()).orElseThrow();
+        return ResponseEntity.ok(notificacionService.obtenerAnteriores(usuario.getId(), antesDe, antesId, limiteValido(limite)));
+    }
+
+    // ✅ API JSON: CONTADOR DE NO LEÍDAS (desde memoria, para el badge)
+    @GetMapping("/api/notificaciones/unread-count")
+    @ResponseBody
+    public ResponseEntity<Map<String, Long>> contarNoLeidas() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Usuario usuario = usuarioRepository.findByEmail(auth.getName()).orElseThrow();
+        return ResponseEntity.ok(Map.of("noLeidas", notificacionService.contarNoLeidas(usuario.getId())));
+    }
+
+    @PostMapping("/api/notificaciones/{id}/leida")
+    @ResponseBody
+    public ResponseEntity<Void> marcarNotificacionLeida(@PathVariable Long id) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Usuario usuario = usuarioRepository.findByEmail(auth.getName()).orElseThrow();
+        notificacionService.marcarLeida(usuario.getId(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/api/notificaciones/leidas")
+    @ResponseBody
+    public ResponseEntity<Void> marcarTodasLeidas() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Usuario usuario = usuarioRepository.findByEmail(auth.getName()).orElseThrow();
+        notificacionService.marcarTodasLeidas(usuario.getId());
+        return ResponseEntity.noContent().build();
     }
 
     // --- CONFIGURACIÓN ---
@@ -270,6 +361,11 @@ public class BodegueroController {
         return bodegaSeleccionada;
     }
 
+    // Notificaciones por página: entre 1 y 100
+    private static int limiteValido(int limite) {
+        return Math.max(1, Math.min(limite, 100));
+    }
+
     private boolean validarAccesoBodega(Long bodegaId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         Usuario usuario = usuarioRepository.findByEmailWithBodegas(auth.getName()).orElse(null);
@@ -1,10 +1,27 @@
 package io.bootify.my_tiendita.cliente;
 
-import io.bootify.my_tiendita.bodega.Bodega;
+import io.bootify.my_tiendita.bodega.BodegaCercanaProjection;
+import io.bootify.my_tiendita.bodega.BodegaClusterDTO;
+import io.bootify.my_tiendita.bodega.BodegaClusterService;
+import io.bootify.my_tiendita.bodega.BodegaDistanciaProjection;
+import io.bootify.my_tiendita.bodega.BodegaFeedService;
 import io.bootify.my_tiendita.bodega.BodegaRepository;
+import io.bootify.my_tiendita.bodegaConfig.BodegaConfigService;
+import io.bootify.my_tiendita.bodegaConfig.CotizacionDeliveryDTO;
+import io.bootify.my_tiendita.estructuras.IndiceCoberturaDelivery;
+import io.bootify.my_tiendita.estructuras.IndiceEspacialBodegas;
+import io.bootify.my_tiendita.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 
 /**
@@ -16,9 +33,40 @@ import java.util.stream.Collectors;
 public class ClienteRestController {
 
     private final BodegaRepository bodegaRepository;
+    private final IndiceEspacialBodegas indiceEspacial;
+    private final IndiceCoberturaDelivery indiceCobertura;
+    private final BodegaClusterService bodegaClusterService;
+    private final BodegaConfigService bodegaConfigService;
+    private final BodegaFeedService bodegaFeedService;
 
-    public ClienteRestController(final BodegaRepository bodegaRepository) {
+    // Origen del prefiltro geográfico: "memoria" (índice en JVM) o "bd" (caja envolvente en MySQL)
+    @Value("${bodegas.cercanas.prefiltro:memoria}")
+    private String prefiltro;
+
+    // Estrategia de distancia: "haversine" (en Java) o "mysql" (ST_Distance_Sphere en la BD)
+    @Value("${bodegas.cercanas.estrategia:haversine}")
+    private String estrategia;
+
+    private static final int MAX_LIMIT = 100;
+    // Radio máximo de búsqueda en metros (endpoints públicos: limita el trabajo por consulta)
+    private static final int MAX_RADIO_METROS = 50_000;
+
+    private static final Comparator<Candidato> ORDEN_CANDIDATO = Comparator
+            .comparingDouble(Candidato::distanciaKm)
+            .thenComparingLong(c -> c.bodega().getId());
+
+    public ClienteRestController(final BodegaRepository bodegaRepository,
+                                 final IndiceEspacialBodegas indiceEspacial,
+                                 final IndiceCoberturaDelivery indiceCobertura,
+                                 final BodegaClusterService bodegaClusterService,
+                                 final BodegaConfigService bodegaConfigService,
+                                 final BodegaFeedService bodegaFeedService) {
         this.bodegaRepository = bodegaRepository;
+        this.indiceEspacial = indiceEspacial;
+        this.indiceCobertura = indiceCobertura;
+        this.bodegaClusterService = bodegaClusterService;
+        this.bodegaConfigService = bodegaConfigService;
+        this.bodegaFeedService = bodegaFeedService;
     }
 
     // ========================================
@@ -41,15 +89,20 @@ public class ClienteRestController {
             @RequestParam Double lat,
             @RequestParam Double lng,
             @RequestParam(defaultValue = "5000") Integer radio) {
+
+        validarRadio(radio);
+        if ("mysql".equalsIgnoreCase(estrategia)) {
+            return buscarConDistanciaEsferica(lat, lng, radio);
+        }
         
-        // 1. Obtener todas las bodegas activas
-        List<Bodega> bodegas = bodegaRepository.findAllByActivoTrue();
+        // 1. Prefiltro: solo bodegas dentro de la caja envolvente del radio
+        List<BodegaCercanaProjection> bodegas = buscarEnRango(lat, lng, radio / 1000.0);
         
-        // 2. Calcular distancia y filtrar por radio
+        // 2. Calcular distancia (Haversine con el origen precalculado) y filtrar por radio
+        GeoUtils.PuntoOrigen origen = new GeoUtils.PuntoOrigen(lat, lng);
         return bodegas.stream()
                 .map(bodega -> {
-                    double distanciaKm = calcularDistancia(
-                            lat, lng, 
+                    double distanciaKm = origen.distanciaKm(
                             bodega.getLatitud(), 
                             bodega.getLongitud()
                     );
@@ -72,34 +125,270 @@ public class ClienteRestController {
                 .collect(Collectors.toList());
     }
 
-    // ========================================
-    // CÁLCULO DE DISTANCIA (Fórmula de Haversine)
-    // ========================================
-    
     /**
-     * Calcula la distancia entre dos puntos geográficos usando la fórmula de Haversine
+     * Variante paginada: devuelve solo las K bodegas más cercanas después del cursor.
+     * Usa un heap acotado de tamaño K, así no se ordena toda la lista filtrada
+     * y la distancia se formatea solo para las bodegas devueltas.
+     * 
+     * Ruta: GET /api/cliente/bodegas/cercanas/top?lat=-6.7714&lng=-79.8411&radio=5000&limit=20&cursor=1.234_42
      * 
-     * @param lat1 Latitud punto 1
-     * @param lon1 Longitud punto 1
-     * @param lat2 Latitud punto 2
-     * @param lon2 Longitud punto 2
-     * @return Distancia en kilómetros
+     * @param limit Cantidad máxima de bodegas a devolver (1..100)
+     * @param cursor Valor "siguienteCursor" de la página anterior (opcional)
+     * @return Página de bodegas ordenadas por cercanía y el cursor de la siguiente
      */
-    private double calcularDistancia(double lat1, double lon1, double lat2, double lon2) {
-        final int RADIO_TIERRA_KM = 6371; // Radio de la Tierra en kilómetros
-        
-        // Convertir grados a radianes
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        
-        // Fórmula de Haversine
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return RADIO_TIERRA_KM * c;
+    @GetMapping("/bodegas/cercanas/top")
+    public PaginaBodegasCercanasDTO obtenerBodegasCercanasTop(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "5000") Integer radio,
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("El parámetro limit debe estar entre 1 y " + MAX_LIMIT);
+        }
+        validarRadio(radio);
+        double radioKm = radio / 1000.0;
+        double cursorDistancia = -1;
+        long cursorId = Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = cursor.split("_");
+            try {
+                cursorDistancia = Double.parseDouble(partes[0]);
+                cursorId = Long.parseLong(partes[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+        }
+
+        // Max-heap por (distancia, id): la cima es la peor de las K mejores
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(limit + 1, ORDEN_CANDIDATO.reversed());
+        // Se pide uno más para saber si existe otra página
+        int capacidad = limit + 1;
+
+        if ("mysql".equalsIgnoreCase(estrategia)) {
+            for (BodegaDistanciaProjection bodega : bodegaRepository.findCercanasPorDistanciaEsferica(
+                    GeoUtils.puntoWkt(lat, lng), GeoUtils.cajaWkt(lat, lng, radioKm), radio)) {
+                ofrecer(mejores, capacidad, bodega, bodega.getDistanciaKm(), cursorDistancia, cursorId);
+            }
+        } else {
+            GeoUtils.PuntoOrigen origen = new GeoUtils.PuntoOrigen(lat, lng);
+            for (BodegaCercanaProjection bodega : buscarEnRango(lat, lng, radioKm)) {
+                double distanciaKm = origen.distanciaKm(bodega.getLatitud(), bodega.getLongitud());
+                if (distanciaKm <= radioKm) {
+                    ofrecer(mejores, capacidad, bodega, distanciaKm, cursorDistancia, cursorId);
+                }
+            }
+        }
+
+        List<Candidato> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(ORDEN_CANDIDATO);
+        boolean hayMas = ordenados.size() > limit;
+        if (hayMas) {
+            ordenados = ordenados.subList(0, limit);
+        }
+
+        List<BodegaCercanaDTO> items = new ArrayList<>(ordenados.size());
+        for (Candidato c : ordenados) {
+            BodegaCercanaProjection b = c.bodega();
+            items.add(new BodegaCercanaDTO(
+                    b.getId(), b.getNombre(), b.getDireccion(), b.getDistrito(),
+                    b.getTelefono(), b.getHorario(), b.getLatitud(), b.getLongitud(),
+                    c.distanciaKm(), formatearDistancia(c.distanciaKm())
+            ));
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Candidato ultimo = ordenados.get(ordenados.size() - 1);
+            siguienteCursor = ultimo.distanciaKm() + "_" + ultimo.bodega().getId();
+        }
+        return new PaginaBodegasCercanasDTO(items, siguienteCursor);
+    }
+
+    /**
+     * Endpoint "¿quién me reparte aquí?": bodegas cuyo círculo de delivery
+     * (BodegaConfig.radioMaximoKm) contiene la ubicación del cliente.
+     * Usado por el mapa en explorar.html para mostrar solo bodegas que entregan.
+     * 
+     * Ruta: GET /api/cliente/bodegas/cobertura?lat=-6.7714&lng=-79.8411
+     * 
+     * @param lat Latitud del punto de entrega
+     * @param lng Longitud del punto de entrega
+     * @return Bodegas que reparten en el punto, ordenadas por cercanía
+     */
+    @GetMapping("/bodegas/cobertura")
+    public List<BodegaCercanaDTO> obtenerBodegasQueReparten(
+            @RequestParam Double lat,
+            @RequestParam Double lng) {
+
+        List<Long> ids = indiceCobertura.bodegasQueReparten(lat, lng);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        GeoUtils.PuntoOrigen origen = new GeoUtils.PuntoOrigen(lat, lng);
+        return bodegaRepository.findActivasByIdIn(ids).stream()
+                .map(bodega -> {
+                    double distanciaKm = origen.distanciaKm(bodega.getLatitud(), bodega.getLongitud());
+                    return new BodegaCercanaDTO(
+                            bodega.getId(), bodega.getNombre(), bodega.getDireccion(), bodega.getDistrito(),
+                            bodega.getTelefono(), bodega.getHorario(), bodega.getLatitud(), bodega.getLongitud(),
+                            distanciaKm, formatearDistancia(distanciaKm)
+                    );
+                })
+                .sorted(Comparator.comparingDouble(BodegaCercanaDTO::getDistanciaKm))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Matriz de distancia y tarifa de delivery para comparar bodegas cercanas
+     * sin llamar a /pre-checkout por cada una.
+     * 
+     * Ruta: GET /api/cliente/bodegas/cotizacion?lat=-6.7714&lng=-79.8411&radio=5000
+     * 
+     * @param lat Latitud del cliente
+     * @param lng Longitud del cliente
+     * @param radio Radio de búsqueda en metros (default: 5000m = 5km)
+     * @return Distancia, rango, costo de delivery y pedido mínimo por bodega, ordenado por cercanía
+     */
+    @GetMapping("/bodegas/cotizacion")
+    public List<CotizacionDeliveryDTO> obtenerCotizacionDelivery(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(defaultValue = "5000") Integer radio) {
+        validarRadio(radio);
+        return bodegaConfigService.cotizarDelivery(lat, lng, radio / 1000.0);
+    }
+
+    /**
+     * Feed binario con id y coordenadas de todas las bodegas activas, para que el
+     * mapa las descargue una sola vez y filtre en el navegador.
+     * Formato little-endian: int32 cantidad + cantidad x (int32 id, int32 latE6, int32 lngE6).
+     * Con If-None-Match igual al ETag actual responde 304 sin cuerpo.
+     * 
+     * Ruta: GET /api/cliente/bodegas/ubicaciones
+     * 
+     * @param ifNoneMatch ETag que el cliente ya tiene
+     * @return Bytes del feed, o 304 si no cambió
+     */
+    @GetMapping("/bodegas/ubicaciones")
+    public ResponseEntity<byte[]> obtenerFeedUbicaciones(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        String etag = bodegaFeedService.calcularEtag();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(bodegaFeedService.obtenerFeed(etag));
+    }
+
+    /**
+     * Endpoint de clusters pre-agregados para el mapa: en vez de enviar cada bodega,
+     * devuelve grupos (cantidad, centroide y límites) según el nivel de zoom.
+     * 
+     * Ruta: GET /api/cliente/bodegas/clusters?bbox=-79.90,-6.82,-79.78,-6.72&zoom=13
+     * 
+     * @param bbox Rectángulo visible "oeste,sur,este,norte" (formato de Leaflet toBBoxString())
+     * @param zoom Nivel de zoom del mapa (0..20)
+     * @return Clusters de las teselas visibles
+     */
+    @GetMapping("/bodegas/clusters")
+    public List<BodegaClusterDTO> obtenerClusters(
+            @RequestParam String bbox,
+            @RequestParam Integer zoom) {
+
+        String[] partes = bbox.split(",");
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("El bbox debe tener la forma oeste,sur,este,norte");
+        }
+        double oeste, sur, este, norte;
+        try {
+            oeste = Double.parseDouble(partes[0].trim());
+            sur = Double.parseDouble(partes[1].trim());
+            este = Double.parseDouble(partes[2].trim());
+            norte = Double.parseDouble(partes[3].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El bbox contiene valores inválidos");
+        }
+        return bodegaClusterService.obtenerClusters(sur, norte, oeste, este, zoom);
+    }
+
+    private static void validarRadio(Integer radio) {
+        if (radio < 1 || radio > MAX_RADIO_METROS) {
+            throw new IllegalArgumentException("El parámetro radio debe estar entre 1 y " + MAX_RADIO_METROS + " metros");
+        }
+    }
+
+    /**
+     * Inserta en el heap acotado solo si el candidato va después del cursor
+     * y mejora a la peor bodega retenida.
+     */
+    private void ofrecer(PriorityQueue<Candidato> heap, int capacidad, BodegaCercanaProjection bodega,
+                         double distanciaKm, double cursorDistancia, long cursorId) {
+        if (distanciaKm < cursorDistancia
+                || (distanciaKm == cursorDistancia && bodega.getId() <= cursorId)) {
+            return;
+        }
+        Candidato candidato = new Candidato(bodega, distanciaKm);
+        if (heap.size() < capacidad) {
+            heap.offer(candidato);
+        } else if (ORDEN_CANDIDATO.compare(candidato, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(candidato);
+        }
+    }
+
+    /**
+     * Estrategia "mysql": la base de datos filtra con el índice SPATIAL y devuelve
+     * las bodegas ya ordenadas por ST_Distance_Sphere.
+     */
+    private List<BodegaCercanaDTO> buscarConDistanciaEsferica(double lat, double lng, int radio) {
+        List<BodegaDistanciaProjection> filas = bodegaRepository.findCercanasPorDistanciaEsferica(
+                GeoUtils.puntoWkt(lat, lng),
+                GeoUtils.cajaWkt(lat, lng, radio / 1000.0),
+                radio
+        );
+
+        return filas.stream()
+                .map(bodega -> new BodegaCercanaDTO(
+                        bodega.getId(),
+                        bodega.getNombre(),
+                        bodega.getDireccion(),
+                        bodega.getDistrito(),
+                        bodega.getTelefono(),
+                        bodega.getHorario(),
+                        bodega.getLatitud(),
+                        bodega.getLongitud(),
+                        bodega.getDistanciaKm(),
+                        formatearDistancia(bodega.getDistanciaKm())
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Trae las bodegas candidatas según el prefiltro configurado.
+     * Con "bd" la base de datos resuelve la caja envolvente, útil cuando hay
+     * varias instancias y el índice en memoria de esta JVM podría estar desfasado.
+     */
+    private List<BodegaCercanaProjection> buscarEnRango(double lat, double lng, double radioKm) {
+        if ("bd".equalsIgnoreCase(prefiltro)) {
+            double[] caja = GeoUtils.cajaEnvolvente(lat, lng, radioKm);
+            return bodegaRepository.findActivasEnRango(caja[0], caja[1], caja[2], caja[3]);
+        }
+
+        List<Long> candidatos = indiceEspacial.buscarCandidatos(lat, lng, radioKm);
+        if (candidatos.isEmpty()) {
+            return List.of();
+        }
+        return bodegaRepository.findActivasByIdIn(candidatos);
     }
 
     /**
@@ -165,4 +454,23 @@ public class ClienteRestController {
         public Double getDistanciaKm() { return distanciaKm; }
         public String getDistanciaFormateada() { return distanciaFormateada; }
     }
+
+    private record Candidato(BodegaCercanaProjection bodega, double distanciaKm) {
+    }
+
+    /**
+     * DTO para la respuesta paginada de bodegas cercanas
+     */
+    public static class PaginaBodegasCercanasDTO {
+        private List<BodegaCercanaDTO> items;
+        private String siguienteCursor;
+
+        public PaginaBodegasCercanasDTO(List<BodegaCercanaDTO> items, String siguienteCursor) {
+            this.items = items;
+            this.siguienteCursor = siguienteCursor;
+        }
+
+        public List<BodegaCercanaDTO> getItems() { return items; }
+        public String getSiguienteCursor() { return siguienteCursor; }
+    }
 }
\ No newline at end of file
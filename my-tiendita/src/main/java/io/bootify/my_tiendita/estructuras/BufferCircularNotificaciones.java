@@ -0,0 +1,109 @@
+package io.bootify.my_tiendita.estructuras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer circular de capacidad fija con las notificaciones más recientes de un usuario.
+ * Al llenarse, la nueva pisa a la más antigua: la memoria por usuario no crece.
+ * Los métodos están sincronizados; cada usuario tiene su propio buffer.
+ */
+public class BufferCircularNotificaciones {
+
+    private final NotificacionResumen[] elementos;
+    // Posición donde se escribirá la próxima notificación
+    private int siguiente;
+    private int tamanio;
+    // Última vez que el usuario pidió sus notificaciones (para desalojar buffers inactivos)
+    private volatile long ultimaLectura = System.currentTimeMillis();
+
+    public BufferCircularNotificaciones(int capacidad) {
+        this.elementos = new NotificacionResumen[capacidad];
+    }
+
+    public synchronized void agregar(NotificacionResumen notificacion) {
+        elementos[siguiente] = notificacion;
+        siguiente = (siguiente + 1) % elementos.length;
+        if (tamanio < elementos.length) tamanio++;
+    }
+
+    /**
+     * Las "limite" más recientes, la última primero. Una sola copia del arreglo.
+     */
+    public synchronized List<NotificacionResumen> recientes(int limite) {
+        tocar();
+        int n = Math.min(limite, tamanio);
+        NotificacionResumen[] copia = new NotificacionResumen[n];
+        for (int i = 0; i < n; i++) {
+            copia[i] = elementos[Math.floorMod(siguiente - 1 - i, elementos.length)];
+        }
+        return Arrays.asList(copia);
+    }
+
+    /**
+     * Junta lo leído de la BD con lo que ya llegó a memoria (sin duplicar por ID)
+     * y se queda con las más recientes. Ante el mismo ID gana la copia en memoria.
+     */
+    public synchronized void fusionar(List<NotificacionResumen> desdeBd) {
+        Map<Long, NotificacionResumen> porId = new LinkedHashMap<>();
+        for (NotificacionResumen n : desdeBd) {
+            porId.put(n.id(), n);
+        }
+        for (int i = 0; i < tamanio; i++) {
+            NotificacionResumen n = elementos[Math.floorMod(siguiente - tamanio + i, elementos.length)];
+            porId.put(n.id(), n);
+        }
+
+        List<NotificacionResumen> todas = new ArrayList<>(porId.values());
+        todas.sort(Comparator.comparing(NotificacionResumen::dateCreated, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(NotificacionResumen::id));
+
+        Arrays.fill(elementos, null);
+        siguiente = 0;
+        tamanio = 0;
+        for (int i = Math.max(0, todas.size() - elementos.length); i < todas.size(); i++) {
+            agregar(todas.get(i));
+        }
+    }
+
+    /**
+     * Marca como leída la notificación si todavía está en el buffer.
+     */
+    public synchronized boolean marcarLeida(Long id) {
+        for (int i = 0; i < tamanio; i++) {
+            int pos = Math.floorMod(siguiente - 1 - i, elementos.length);
+            if (elementos[pos].id().equals(id)) {
+                elementos[pos] = elementos[pos].comoLeida();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void marcarTodasLeidas() {
+        for (int i = 0; i < tamanio; i++) {
+            int pos = Math.floorMod(siguiente - 1 - i, elementos.length);
+            elementos[pos] = elementos[pos].comoLeida();
+        }
+    }
+
+    public void tocar() {
+        ultimaLectura = System.currentTimeMillis();
+    }
+
+    public long getUltimaLectura() {
+        return ultimaLectura;
+    }
+
+    public synchronized int tamanio() {
+        return tamanio;
+    }
+
+    public int capacidad() {
+        return elementos.length;
+    }
+}
@@ -0,0 +1,71 @@
+package io.bootify.my_tiendita.estructuras;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Notificaciones no leídas por usuario, mantenidas en memoria para no hacer un
+ * COUNT en cada página. El contador de un usuario se carga de la BD la primera
+ * vez que se consulta y desde ahí solo se suma o resta. Si algún cambio se
+ * pierde (p. ej. llega justo mientras se carga), la reconciliación periódica de
+ * NotificacionService lo corrige; el contador se quita cuando el usuario sale
+ * de GestorNotificacionesRecientes.
+ */
+@Component
+public class ContadoresNoLeidas {
+
+    // Mapa: ID Usuario -> no leídas
+    private final Map<Long, AtomicLong> porUsuario = new ConcurrentHashMap<>();
+
+    public long obtener(Long usuarioId, LongSupplier cargador) {
+        AtomicLong contador = porUsuario.get(usuarioId);
+        if (contador == null) {
+            AtomicLong nuevo = new AtomicLong(cargador.getAsLong());
+            AtomicLong previo = porUsuario.putIfAbsent(usuarioId, nuevo);
+            contador = previo != null ? previo : nuevo;
+        }
+        return Math.max(0, contador.get());
+    }
+
+    /**
+     * Suma (o resta) solo si el contador ya está cargado; si no, la próxima
+     * consulta lo leerá de la BD con el cambio incluido.
+     */
+    public void sumar(Long usuarioId, long delta) {
+        AtomicLong contador = porUsuario.get(usuarioId);
+        if (contador != null) {
+            contador.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Valores actuales de los contadores cargados, para compararlos con la BD.
+     */
+    public Map<Long, Long> valores() {
+        Map<Long, Long> valores = new HashMap<>();
+        porUsuario.forEach((usuarioId, contador) -> valores.put(usuarioId, contador.get()));
+        return valores;
+    }
+
+    /**
+     * Reemplaza el valor solo si sigue siendo "esperado" (el leído antes del COUNT);
+     * si entretanto llegó un cambio, no se pisa y se revisa en la siguiente pasada.
+     */
+    public boolean corregir(Long usuarioId, long esperado, long valor) {
+        AtomicLong contador = porUsuario.get(usuarioId);
+        return contador != null && contador.compareAndSet(esperado, valor);
+    }
+
+    public void quitar(Long usuarioId) {
+        porUsuario.remove(usuarioId);
+    }
+
+    public int tamanio() {
+        return porUsuario.size();
+    }
+}
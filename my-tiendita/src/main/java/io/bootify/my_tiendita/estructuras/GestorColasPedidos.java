@@ -1,37 +1,190 @@
 package io.bootify.my_tiendita.estructuras;
 
-import io.bootify.my_tiendita.pedido.Pedido;
+import io.bootify.my_tiendita.model.MetodoEntrega;
+import io.bootify.my_tiendita.model.PoliticaCola;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * Colas de pedidos pendientes, una por bodega.
+ * Cada elemento es un PedidoEnCola (resumen inmutable), no la entidad JPA.
+ *
+ * Cada bodega tiene su propio heap indexado con el orden de su política
+ * (FIFO o PRIORIDAD, ver BodegaConfig). Se modifican desde varios hilos a la vez
+ * (checkout web, pedidos manuales, confirmaciones): el mapa es concurrente y el
+ * candado es por bodega, así operaciones sobre bodegas distintas nunca compiten
+ * entre sí y un mismo pedido solo puede ser desencolado por un hilo.
+ *
+ * La cola de una bodega se hidrata desde la BD la primera vez que se necesita
+ * (ver hidratar); los pedidos encolados antes de eso se fusionan sin duplicarse.
+ */
 @Component
 public class GestorColasPedidos {
 
+    public static final Comparator<PedidoEnCola> ORDEN_LLEGADA = Comparator
+            .comparing(PedidoEnCola::fechaCreacion, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(PedidoEnCola::id);
+
+    // Minutos objetivo por defecto cuando la bodega no los configuró
+    public static final int MINUTOS_OBJETIVO_DELIVERY = 15;
+    public static final int MINUTOS_OBJETIVO_RECOJO = 30;
+
     // Mapa: ID Bodega -> Cola de Pedidos
-    private final Map<Long, Queue<Pedido>> colasPorBodega = new HashMap<>();
+    private final Map<Long, HeapIndexadoPedidos> colasPorBodega = new ConcurrentHashMap<>();
+    // Mapa: ID Bodega -> carga desde BD (en curso o terminada)
+    private final Map<Long, CompletableFuture<Void>> hidratadas = new ConcurrentHashMap<>();
+
+    /**
+     * Orden de atención para una política. En PRIORIDAD cada pedido tiene una hora
+     * objetivo (creación + minutos según delivery o recojo) y se atiende primero el
+     * de hora objetivo más temprana; a igual hora va primero el delivery y luego el
+     * más antiguo. Como la hora objetivo no cambia con el tiempo, el heap sigue válido.
+     */
+    public static Comparator<PedidoEnCola> ordenPara(PoliticaCola politica,
+                                                      Integer minutosDelivery,
+                                                      Integer minutosRecojo) {
+        if (politica != PoliticaCola.PRIORIDAD) {
+            return ORDEN_LLEGADA;
+        }
+        int delivery = minutosDelivery != null ? minutosDelivery : MINUTOS_OBJETIVO_DELIVERY;
+        int recojo = minutosRecojo != null ? minutosRecojo : MINUTOS_OBJETIVO_RECOJO;
+        Comparator<PedidoEnCola> porHoraObjetivo = Comparator.comparing(
+                p -> horaObjetivo(p, delivery, recojo),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        return porHoraObjetivo
+                .thenComparing(p -> p.metodoEntrega() == MetodoEntrega.DELIVERY ? 0 : 1)
+                .thenComparing(ORDEN_LLEGADA);
+    }
+
+    public void encolar(Long bodegaId, PedidoEnCola pedido) {
+        HeapIndexadoPedidos cola = cola(bodegaId);
+        synchronized (cola) {
+            cola.insertar(pedido);
+        }
+    }
 
-    public void encolar(Long bodegaId, Pedido pedido) {
-        colasPorBodega.putIfAbsent(bodegaId, new LinkedList<>());
-        colasPorBodega.get(bodegaId).offer(pedido); // offer = encolar al final
+    public PedidoEnCola desencolar(Long bodegaId) {
+        HeapIndexadoPedidos cola = colasPorBodega.get(bodegaId);
+        if (cola == null) return null;
+        synchronized (cola) {
+            return cola.extraerPrimero();
+        }
+    }
+
+    public PedidoEnCola verSiguiente(Long bodegaId) {
+        HeapIndexadoPedidos cola = colasPorBodega.get(bodegaId);
+        if (cola == null) return null;
+        synchronized (cola) {
+            return cola.verPrimero();
+        }
+    }
+
+    /**
+     * Reemplaza el resumen de un pedido que cambió y lo reubica en O(log n).
+     */
+    public boolean actualizar(Long bodegaId, PedidoEnCola pedido) {
+        HeapIndexadoPedidos cola = colasPorBodega.get(bodegaId);
+        if (cola == null) return false;
+        synchronized (cola) {
+            return cola.actualizar(pedido);
+        }
     }
 
-    public Pedido desencolar(Long bodegaId) {
-        if (!colasPorBodega.containsKey(bodegaId) || colasPorBodega.get(bodegaId).isEmpty()) {
-            return null;
+    /**
+     * Saca de la cola un pedido cualquiera (p. ej. cancelado) en O(log n).
+     */
+    public PedidoEnCola quitar(Long bodegaId, Long pedidoId) {
+        HeapIndexadoPedidos cola = colasPorBodega.get(bodegaId);
+        if (cola == null) return null;
+        synchronized (cola) {
+            return cola.quitar(pedidoId);
         }
-        return colasPorBodega.get(bodegaId).poll(); // poll = sacar del frente
     }
 
-    public Pedido verSiguiente(Long bodegaId) {
-        if (!colasPorBodega.containsKey(bodegaId)) return null;
-        return colasPorBodega.get(bodegaId).peek(); // peek = ver sin sacar
+    /**
+     * Aplica el orden de atención de la bodega y reordena lo que ya está encolado.
+     */
+    public void configurarOrden(Long bodegaId, Comparator<PedidoEnCola> orden) {
+        HeapIndexadoPedidos cola = cola(bodegaId);
+        synchronized (cola) {
+            cola.reordenar(orden);
+        }
+    }
+
+    /**
+     * Copia de la cola en el orden en que se atenderá; modificarla no afecta la cola real.
+     */
+    public List<PedidoEnCola> obtenerCola(Long bodegaId) {
+        HeapIndexadoPedidos cola = colasPorBodega.get(bodegaId);
+        if (cola == null) return List.of();
+        synchronized (cola) {
+            return cola.enOrden();
+        }
+    }
+
+    /**
+     * Carga la cola de la bodega desde la BD una sola vez. Si varios hilos llegan
+     * a la vez, solo uno ejecuta el cargador y el resto espera su resultado.
+     * Si la carga falla, se podrá reintentar en el siguiente acceso.
+     */
+    public void hidratar(Long bodegaId, Supplier<List<PedidoEnCola>> cargador) {
+        CompletableFuture<Void> existente = hidratadas.get(bodegaId);
+        if (existente == null) {
+            CompletableFuture<Void> nueva = new CompletableFuture<>();
+            existente = hidratadas.putIfAbsent(bodegaId, nueva);
+            if (existente == null) {
+                try {
+                    List<PedidoEnCola> desdeBd = cargador.get();
+                    HeapIndexadoPedidos cola = cola(bodegaId);
+                    synchronized (cola) {
+                        // Los ya encolados se conservan (insertar no duplica por ID)
+                        for (PedidoEnCola p : desdeBd) {
+                            if (!cola.contiene(p.id())) {
+                                cola.insertar(p);
+                            }
+                        }
+                    }
+                    nueva.complete(null);
+                    return;
+                } catch (RuntimeException e) {
+                    hidratadas.remove(bodegaId, nueva);
+                    nueva.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        existente.join();
+    }
+
+    public boolean estaHidratada(Long bodegaId) {
+        CompletableFuture<Void> carga = hidratadas.get(bodegaId);
+        return carga != null && carga.isDone() && !carga.isCompletedExceptionally();
+    }
+
+    public int bodegasHidratadas() {
+        return (int) hidratadas.values().stream()
+                .filter(c -> c.isDone() && !c.isCompletedExceptionally())
+                .count();
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private HeapIndexadoPedidos cola(Long bodegaId) {
+        return colasPorBodega.computeIfAbsent(bodegaId, id -> new HeapIndexadoPedidos(ORDEN_LLEGADA));
     }
 
-    public Queue<Pedido> obtenerCola(Long bodegaId) {
-        return colasPorBodega.getOrDefault(bodegaId, new LinkedList<>());
+    private static OffsetDateTime horaObjetivo(PedidoEnCola p, int minutosDelivery, int minutosRecojo) {
+        if (p.fechaCreacion() == null) return null;
+        return p.fechaCreacion().plusMinutes(
+                p.metodoEntrega() == MetodoEntrega.DELIVERY ? minutosDelivery : minutosRecojo);
     }
-}
\ No newline at end of file
+}
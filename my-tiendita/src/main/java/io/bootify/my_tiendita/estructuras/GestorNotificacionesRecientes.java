@@ -0,0 +1,128 @@
+package io.bootify.my_tiendita.estructuras;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Notificaciones recientes por usuario (la más nueva primero), en un buffer
+ * circular de capacidad fija por usuario. Lo que no entra en el buffer se lee
+ * de la BD cuando se pide (ver NotificacionService).
+ *
+ * El buffer de un usuario se hidrata desde la BD la primera vez que lo consulta
+ * (ver hidratar); las que lleguen antes de eso se fusionan sin duplicarse.
+ * Los buffers de usuarios que dejan de consultar se desalojan (ver desalojarInactivos)
+ * y se vuelven a hidratar en su próximo acceso.
+ */
+@Component
+public class GestorNotificacionesRecientes {
+
+    // Mapa: ID Usuario -> sus últimas notificaciones
+    private final Map<Long, BufferCircularNotificaciones> buffersPorUsuario = new ConcurrentHashMap<>();
+    // Mapa: ID Usuario -> carga desde BD (en curso o terminada)
+    private final Map<Long, CompletableFuture<Void>> hidratados = new ConcurrentHashMap<>();
+
+    @Value("${notificaciones.buffer.capacidad:20}")
+    private int capacidad;
+
+    public void agregar(Long usuarioId, NotificacionResumen notificacion) {
+        buffer(usuarioId).agregar(notificacion);
+    }
+
+    public List<NotificacionResumen> recientes(Long usuarioId, int limite) {
+        BufferCircularNotificaciones buffer = buffersPorUsuario.get(usuarioId);
+        return buffer == null ? List.of() : buffer.recientes(limite);
+    }
+
+    /**
+     * El usuario sigue activo aunque solo consulte el contador (p. ej. el badge del admin).
+     */
+    public void registrarActividad(Long usuarioId) {
+        buffer(usuarioId).tocar();
+    }
+
+    public boolean estaEnMemoria(Long usuarioId) {
+        return buffersPorUsuario.containsKey(usuarioId);
+    }
+
+    public void marcarLeida(Long usuarioId, Long notificacionId) {
+        BufferCircularNotificaciones buffer = buffersPorUsuario.get(usuarioId);
+        if (buffer != null) buffer.marcarLeida(notificacionId);
+    }
+
+    public void marcarTodasLeidas(Long usuarioId) {
+        BufferCircularNotificaciones buffer = buffersPorUsuario.get(usuarioId);
+        if (buffer != null) buffer.marcarTodasLeidas();
+    }
+
+    /**
+     * Carga las últimas notificaciones del usuario una sola vez. Si varios hilos
+     * llegan a la vez, solo uno ejecuta el cargador y el resto espera su resultado.
+     * Si la carga falla, se podrá reintentar en el siguiente acceso.
+     */
+    public void hidratar(Long usuarioId, Supplier<List<NotificacionResumen>> cargador) {
+        CompletableFuture<Void> existente = hidratados.get(usuarioId);
+        if (existente == null) {
+            CompletableFuture<Void> nueva = new CompletableFuture<>();
+            existente = hidratados.putIfAbsent(usuarioId, nueva);
+            if (existente == null) {
+                try {
+                    buffer(usuarioId).fusionar(cargador.get());
+                    nueva.complete(null);
+                    return;
+                } catch (RuntimeException e) {
+                    hidratados.remove(usuarioId, nueva);
+                    nueva.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        existente.join();
+    }
+
+    public boolean estaHidratado(Long usuarioId) {
+        CompletableFuture<Void> carga = hidratados.get(usuarioId);
+        return carga != null && carga.isDone() && !carga.isCompletedExceptionally();
+    }
+
+    /**
+     * Quita los buffers que nadie leyó desde "antesDe" (epoch ms) y devuelve sus
+     * usuarios. Se saltan los que se están hidratando en ese momento.
+     */
+    public List<Long> desalojarInactivos(long antesDe) {
+        List<Long> desalojados = new ArrayList<>();
+        for (Map.Entry<Long, BufferCircularNotificaciones> entrada : buffersPorUsuario.entrySet()) {
+            if (entrada.getValue().getUltimaLectura() >= antesDe) continue;
+            Long usuarioId = entrada.getKey();
+            CompletableFuture<Void> carga = hidratados.get(usuarioId);
+            if (carga != null && !carga.isDone()) continue;
+            hidratados.remove(usuarioId);
+            if (buffersPorUsuario.remove(usuarioId, entrada.getValue())) {
+                desalojados.add(usuarioId);
+            }
+        }
+        return desalojados;
+    }
+
+    public int usuariosEnMemoria() {
+        return buffersPorUsuario.size();
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private BufferCircularNotificaciones buffer(Long usuarioId) {
+        return buffersPorUsuario.computeIfAbsent(usuarioId, id -> new BufferCircularNotificaciones(capacidad));
+    }
+}
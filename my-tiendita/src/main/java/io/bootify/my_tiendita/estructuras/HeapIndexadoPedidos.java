@@ -0,0 +1,144 @@
+package io.bootify.my_tiendita.estructuras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Min-heap de pedidos con índice por ID: además de insertar y extraer el primero,
+ * permite actualizar o quitar un pedido cualquiera en O(log n) porque se sabe en
+ * qué posición del arreglo está. No es thread-safe; GestorColasPedidos lo protege.
+ */
+public class HeapIndexadoPedidos {
+
+    private PedidoEnCola[] heap = new PedidoEnCola[16];
+    private int tamanio;
+    // Mapa: ID Pedido -> posición en el arreglo
+    private final Map<Long, Integer> posiciones = new HashMap<>();
+    private Comparator<PedidoEnCola> orden;
+
+    public HeapIndexadoPedidos(Comparator<PedidoEnCola> orden) {
+        this.orden = orden;
+    }
+
+    /**
+     * Inserta el pedido; si ya estaba, lo reemplaza y reubica.
+     */
+    public void insertar(PedidoEnCola pedido) {
+        if (posiciones.containsKey(pedido.id())) {
+            actualizar(pedido);
+            return;
+        }
+        if (tamanio == heap.length) {
+            heap = Arrays.copyOf(heap, tamanio * 2);
+        }
+        heap[tamanio] = pedido;
+        posiciones.put(pedido.id(), tamanio);
+        subir(tamanio++);
+    }
+
+    public PedidoEnCola verPrimero() {
+        return tamanio == 0 ? null : heap[0];
+    }
+
+    public PedidoEnCola extraerPrimero() {
+        return tamanio == 0 ? null : quitarEn(0);
+    }
+
+    public boolean actualizar(PedidoEnCola pedido) {
+        Integer i = posiciones.get(pedido.id());
+        if (i == null) return false;
+        heap[i] = pedido;
+        subir(i);
+        bajar(posiciones.get(pedido.id()));
+        return true;
+    }
+
+    public PedidoEnCola quitar(Long pedidoId) {
+        Integer i = posiciones.get(pedidoId);
+        return i == null ? null : quitarEn(i);
+    }
+
+    public boolean contiene(Long pedidoId) {
+        return posiciones.containsKey(pedidoId);
+    }
+
+    /**
+     * Cambia el criterio de orden y reconstruye el heap en O(n).
+     */
+    public void reordenar(Comparator<PedidoEnCola> nuevoOrden) {
+        this.orden = nuevoOrden;
+        for (int i = tamanio / 2 - 1; i >= 0; i--) {
+            bajar(i);
+        }
+    }
+
+    /**
+     * Copia de los pedidos en el orden en que serían atendidos.
+     */
+    public List<PedidoEnCola> enOrden() {
+        List<PedidoEnCola> lista = new ArrayList<>(Arrays.asList(heap).subList(0, tamanio));
+        lista.sort(orden);
+        return lista;
+    }
+
+    public int tamanio() {
+        return tamanio;
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private PedidoEnCola quitarEn(int i) {
+        PedidoEnCola quitado = heap[i];
+        posiciones.remove(quitado.id());
+        int ultimo = --tamanio;
+        if (i != ultimo) {
+            PedidoEnCola movido = heap[ultimo];
+            heap[i] = movido;
+            posiciones.put(movido.id(), i);
+            heap[ultimo] = null;
+            subir(i);
+            bajar(posiciones.get(movido.id()));
+        } else {
+            heap[ultimo] = null;
+        }
+        return quitado;
+    }
+
+    private void subir(int i) {
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (orden.compare(heap[i], heap[padre]) >= 0) break;
+            intercambiar(i, padre);
+            i = padre;
+        }
+    }
+
+    private void bajar(int i) {
+        while (true) {
+            int izq = 2 * i + 1;
+            if (izq >= tamanio) break;
+            int menor = izq;
+            int der = izq + 1;
+            if (der < tamanio && orden.compare(heap[der], heap[izq]) < 0) {
+                menor = der;
+            }
+            if (orden.compare(heap[menor], heap[i]) >= 0) break;
+            intercambiar(i, menor);
+            i = menor;
+        }
+    }
+
+    private void intercambiar(int a, int b) {
+        PedidoEnCola tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+        posiciones.put(heap[a].id(), a);
+        posiciones.put(heap[b].id(), b);
+    }
+}
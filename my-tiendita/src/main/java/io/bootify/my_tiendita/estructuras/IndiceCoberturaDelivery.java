@@ -0,0 +1,165 @@
+package io.bootify.my_tiendita.estructuras;
+
+import io.bootify.my_tiendita.util.GeoUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice inverso de cobertura de delivery: "¿quién reparte aquí?".
+ * Cada bodega con delivery se registra en todas las celdas que toca su círculo
+ * de reparto (radioMaximoKm). Una consulta solo revisa la celda del punto
+ * y confirma la distancia exacta contra cada bodega registrada en ella.
+ */
+@Component
+public class IndiceCoberturaDelivery {
+
+    // Tamaño de celda en grados (~5.5 km en latitud)
+    private static final double TAM_CELDA_GRADOS = 0.05;
+
+    // Mapa: clave de celda -> IDs de bodegas cuyo círculo toca la celda
+    private final Map<Long, Set<Long>> bodegasPorCelda = new HashMap<>();
+    // Mapa: ID Bodega -> círculo de reparto registrado
+    private final Map<Long, Cobertura> coberturas = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Registra (o reemplaza) el círculo de reparto de una bodega.
+     */
+    public void registrar(Long bodegaId, double latitud, double longitud, double radioKm) {
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(bodegaId);
+            Cobertura cobertura = new Cobertura(latitud, longitud, radioKm);
+            coberturas.put(bodegaId, cobertura);
+            for (long clave : cobertura.celdas()) {
+                bodegasPorCelda.computeIfAbsent(clave, k -> new HashSet<>()).add(bodegaId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mueve el centro de una bodega ya registrada conservando su radio de reparto.
+     */
+    public void reubicar(Long bodegaId, double latitud, double longitud) {
+        lock.writeLock().lock();
+        try {
+            Cobertura actual = coberturas.get(bodegaId);
+            if (actual == null) return;
+            quitarSinLock(bodegaId);
+            Cobertura nueva = new Cobertura(latitud, longitud, actual.radioKm);
+            coberturas.put(bodegaId, nueva);
+            for (long clave : nueva.celdas()) {
+                bodegasPorCelda.computeIfAbsent(clave, k -> new HashSet<>()).add(bodegaId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long bodegaId) {
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(bodegaId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            bodegasPorCelda.clear();
+            coberturas.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los IDs de las bodegas cuyo círculo de reparto contiene el punto.
+     */
+    public List<Long> bodegasQueReparten(double latitud, double longitud) {
+        GeoUtils.PuntoOrigen punto = new GeoUtils.PuntoOrigen(latitud, longitud);
+        List<Long> resultado = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> enCelda = bodegasPorCelda.get(claveCelda(fila(latitud), columna(longitud)));
+            if (enCelda == null) return resultado;
+            for (Long bodegaId : enCelda) {
+                Cobertura c = coberturas.get(bodegaId);
+                if (!punto.fueraDeRadioAprox(c.latitud, c.longitud, c.radioKm)
+                        && punto.distanciaKm(c.latitud, c.longitud) <= c.radioKm) {
+                    resultado.add(bodegaId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return coberturas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private void quitarSinLock(Long bodegaId) {
+        Cobertura anterior = coberturas.remove(bodegaId);
+        if (anterior == null) return;
+        for (long clave : anterior.celdas()) {
+            Set<Long> ids = bodegasPorCelda.get(clave);
+            if (ids != null && ids.remove(bodegaId) && ids.isEmpty()) {
+                bodegasPorCelda.remove(clave);
+            }
+        }
+    }
+
+    private static int fila(double latitud) {
+        return (int) Math.floor(latitud / TAM_CELDA_GRADOS);
+    }
+
+    private static int columna(double longitud) {
+        return (int) Math.floor(longitud / TAM_CELDA_GRADOS);
+    }
+
+    private static long claveCelda(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xFFFFFFFFL);
+    }
+
+    private record Cobertura(double latitud, double longitud, double radioKm) {
+
+        // Celdas que cruzan la caja envolvente del círculo de reparto
+        long[] celdas() {
+            double[] caja = GeoUtils.cajaEnvolvente(latitud, longitud, radioKm);
+            int filaMin = fila(caja[0]), filaMax = fila(caja[1]);
+            int colMin = columna(caja[2]), colMax = columna(caja[3]);
+            long[] claves = new long[(filaMax - filaMin + 1) * (colMax - colMin + 1)];
+            int i = 0;
+            for (int f = filaMin; f <= filaMax; f++) {
+                for (int c = colMin; c <= colMax; c++) {
+                    claves[i++] = claveCelda(f, c);
+                }
+            }
+            return claves;
+        }
+    }
+}
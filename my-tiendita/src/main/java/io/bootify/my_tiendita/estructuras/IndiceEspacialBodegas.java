@@ -0,0 +1,249 @@
+package io.bootify.my_tiendita.estructuras;
+
+import io.bootify.my_tiendita.util.GeoUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice espacial en memoria de las bodegas activas (grilla de celdas fijas).
+ * Cada celda guarda ids y coordenadas en arreglos primitivos, así una búsqueda
+ * por radio solo recorre las celdas que se cruzan con el círculo de búsqueda.
+ */
+@Component
+public class IndiceEspacialBodegas {
+
+    // Tamaño de celda en grados (~1.1 km en latitud)
+    private static final double TAM_CELDA_GRADOS = 0.01;
+
+    // Mapa: clave de celda -> celda con sus bodegas
+    private final Map<Long, Celda> celdas = new HashMap<>();
+    // Mapa: ID Bodega -> clave de la celda donde está
+    private final Map<Long, Long> celdaPorBodega = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Se incrementa en cada cambio; permite invalidar cachés derivadas (p. ej. clusters)
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Inserta o mueve una bodega a la celda que corresponde a sus coordenadas.
+     */
+    public void actualizar(Long bodegaId, double latitud, double longitud) {
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(bodegaId);
+            long clave = claveCelda(fila(latitud), columna(longitud));
+            celdas.computeIfAbsent(clave, k -> new Celda()).agregar(bodegaId, latitud, longitud);
+            celdaPorBodega.put(bodegaId, clave);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long bodegaId) {
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(bodegaId);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            celdas.clear();
+            celdaPorBodega.clear();
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los IDs de las bodegas que están dentro del radio de búsqueda.
+     * Solo se recorren las celdas que cruzan la caja envolvente del círculo y,
+     * dentro de cada celda, las distancias se calculan en lote sobre sus arreglos.
+     * Si la caja abarca más celdas de las que existen (radio grande o cerca de los
+     * polos), se recorren las celdas ocupadas, igual que en recorrer().
+     */
+    public List<Long> buscarCandidatos(double latitud, double longitud, double radioKm) {
+        double[] caja = GeoUtils.cajaEnvolvente(latitud, longitud, radioKm);
+        // Recortada a coordenadas válidas: cerca de los polos la caja puede medir miles de grados
+        int filaMin = fila(Math.max(caja[0], -90)), filaMax = fila(Math.min(caja[1], 90));
+        int columnaMin = columna(Math.max(caja[2], -180)), columnaMax = columna(Math.min(caja[3], 180));
+        GeoUtils.PuntoOrigen origen = new GeoUtils.PuntoOrigen(latitud, longitud);
+
+        List<Long> candidatos = new ArrayList<>();
+        double[] distancias = new double[0];
+        lock.readLock().lock();
+        try {
+            long celdasEnCaja = ((long) filaMax - filaMin + 1) * ((long) columnaMax - columnaMin + 1);
+            if (celdasEnCaja > celdas.size()) {
+                for (Celda celda : celdas.values()) {
+                    distancias = celda.agregarEnRadio(origen, radioKm, distancias, candidatos);
+                }
+                return candidatos;
+            }
+            for (int f = filaMin; f <= filaMax; f++) {
+                for (int c = columnaMin; c <= columnaMax; c++) {
+                    Celda celda = celdas.get(claveCelda(f, c));
+                    if (celda != null) {
+                        distancias = celda.agregarEnRadio(origen, radioKm, distancias, candidatos);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return candidatos;
+    }
+
+    /**
+     * Recorre todas las bodegas dentro del rectángulo dado. Si el rectángulo abarca
+     * más celdas de las que existen (zoom lejano), se recorren las celdas ocupadas.
+     */
+    public void recorrer(double latMin, double latMax, double lngMin, double lngMax, VisitanteBodega visitante) {
+        lock.readLock().lock();
+        try {
+            long filas = (long) fila(latMax) - fila(latMin) + 1;
+            long columnas = (long) columna(lngMax) - columna(lngMin) + 1;
+            if (filas * columnas > celdas.size()) {
+                for (Celda celda : celdas.values()) {
+                    celda.visitar(latMin, latMax, lngMin, lngMax, visitante);
+                }
+                return;
+            }
+            for (int f = fila(latMin); f <= fila(latMax); f++) {
+                for (int c = columna(lngMin); c <= columna(lngMax); c++) {
+                    Celda celda = celdas.get(claveCelda(f, c));
+                    if (celda != null) {
+                        celda.visitar(latMin, latMax, lngMin, lngMax, visitante);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return celdaPorBodega.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private void quitarSinLock(Long bodegaId) {
+        Long clave = celdaPorBodega.remove(bodegaId);
+        if (clave == null) return;
+        Celda celda = celdas.get(clave);
+        if (celda != null && celda.quitar(bodegaId) && celda.tamanio == 0) {
+            celdas.remove(clave);
+        }
+    }
+
+    private static int fila(double latitud) {
+        return (int) Math.floor(latitud / TAM_CELDA_GRADOS);
+    }
+
+    private static int columna(double longitud) {
+        return (int) Math.floor(longitud / TAM_CELDA_GRADOS);
+    }
+
+    private static long claveCelda(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Celda de la grilla: arreglos paralelos que crecen bajo demanda.
+     */
+    private static final class Celda {
+        private long[] ids = new long[4];
+        private double[] lats = new double[4];
+        private double[] lngs = new double[4];
+        private int tamanio;
+
+        void agregar(long id, double lat, double lng) {
+            if (tamanio == ids.length) {
+                int nuevo = tamanio * 2;
+                ids = Arrays.copyOf(ids, nuevo);
+                lats = Arrays.copyOf(lats, nuevo);
+                lngs = Arrays.copyOf(lngs, nuevo);
+            }
+            ids[tamanio] = id;
+            lats[tamanio] = lat;
+            lngs[tamanio] = lng;
+            tamanio++;
+        }
+
+        boolean quitar(long id) {
+            for (int i = 0; i < tamanio; i++) {
+                if (ids[i] == id) {
+                    // Se reemplaza por el último para no desplazar el arreglo
+                    int ultimo = --tamanio;
+                    ids[i] = ids[ultimo];
+                    lats[i] = lats[ultimo];
+                    lngs[i] = lngs[ultimo];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Agrega los IDs dentro del radio; devuelve el arreglo de distancias
+         * (el mismo, o uno más grande si esta celda no cabía en él).
+         */
+        double[] agregarEnRadio(GeoUtils.PuntoOrigen origen, double radioKm, double[] distancias, List<Long> candidatos) {
+            if (distancias.length < tamanio) {
+                distancias = new double[ids.length];
+            }
+            if (origen.distanciasEnRadio(lats, lngs, tamanio, radioKm, distancias) > 0) {
+                for (int i = 0; i < tamanio; i++) {
+                    if (distancias[i] <= radioKm) {
+                        candidatos.add(ids[i]);
+                    }
+                }
+            }
+            return distancias;
+        }
+
+        void visitar(double latMin, double latMax, double lngMin, double lngMax, VisitanteBodega visitante) {
+            for (int i = 0; i < tamanio; i++) {
+                double lat = lats[i];
+                double lng = lngs[i];
+                if (lat >= latMin && lat <= latMax && lng >= lngMin && lng <= lngMax) {
+                    visitante.visitar(ids[i], lat, lng);
+                }
+            }
+        }
+    }
+
+    /**
+     * Callback con valores primitivos para recorrer el índice sin crear objetos por bodega.
+     */
+    @FunctionalInterface
+    public interface VisitanteBodega {
+        void visitar(long bodegaId, double latitud, double longitud);
+    }
+}
@@ -0,0 +1,32 @@
+package io.bootify.my_tiendita.estructuras;
+
+import io.bootify.my_tiendita.notificacion.Notificacion;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Resumen inmutable de una notificación, lo que guardan los buffers en memoria.
+ * Mantiene los nombres de campo de la entidad para que el JSON no cambie.
+ */
+public record NotificacionResumen(Long id,
+                                  String mensaje,
+                                  String tipo,
+                                  String urlDestino,
+                                  boolean leido,
+                                  OffsetDateTime dateCreated) {
+
+    public static NotificacionResumen de(Notificacion notificacion) {
+        return new NotificacionResumen(
+                notificacion.getId(),
+                notificacion.getMensaje(),
+                notificacion.getTipo(),
+                notificacion.getUrlDestino(),
+                Boolean.TRUE.equals(notificacion.getLeido()),
+                notificacion.getDateCreated());
+    }
+
+    public NotificacionResumen comoLeida() {
+        return leido ? this : new NotificacionResumen(id, mensaje, tipo, urlDestino, true, dateCreated);
+    }
+}
+
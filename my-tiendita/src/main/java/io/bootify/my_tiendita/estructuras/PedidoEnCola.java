@@ -0,0 +1,36 @@
+package io.bootify.my_tiendita.estructuras;
+
+import io.bootify.my_tiendita.model.MetodoEntrega;
+import io.bootify.my_tiendita.pedido.Pedido;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Resumen inmutable de un pedido pendiente, lo único que guarda la cola en memoria.
+ * El detalle completo se consulta a la BD solo cuando se va a mostrar o confirmar.
+ */
+public record PedidoEnCola(Long id,
+                           String codigoPedido,
+                           BigDecimal total,
+                           OffsetDateTime fechaCreacion,
+                           String clienteNombre,
+                           MetodoEntrega metodoEntrega) {
+
+    public static PedidoEnCola de(Pedido pedido) {
+        return new PedidoEnCola(
+                pedido.getId(),
+                pedido.getCodigoPedido(),
+                pedido.getTotal(),
+                pedido.getDateCreated(),
+                pedido.getUsuario() != null ? pedido.getUsuario().getNombre() : "Cliente Desconocido",
+                metodoEntregaDe(pedido));
+    }
+
+    // El pedido no guarda el método de entrega: con dirección es delivery, sin ella es recojo
+    public static MetodoEntrega metodoEntregaDe(Pedido pedido) {
+        return pedido.getDireccionEntrega() != null && !pedido.getDireccionEntrega().isBlank()
+                ? MetodoEntrega.DELIVERY
+                : MetodoEntrega.RECOJO_EN_BODEGA;
+    }
+}
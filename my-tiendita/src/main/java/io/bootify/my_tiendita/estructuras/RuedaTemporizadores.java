@@ -0,0 +1,132 @@
+package io.bootify.my_tiendita.estructuras;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Rueda de temporizadores con hash (hashed timing wheel).
+ *
+ * El tiempo se divide en ticks y cada tick cae en una ranura del arreglo
+ * (tick % ranuras); si el vencimiento está a más de una vuelta, el temporizador
+ * guarda cuántas vueltas le faltan. Programar y cancelar cuestan O(1) sin importar
+ * cuántos temporizadores haya, y en cada tick solo se revisa una ranura.
+ *
+ * programar y cancelar se pueden llamar desde cualquier hilo; avanzar lo debe
+ * llamar siempre el mismo hilo (el que mueve la rueda).
+ */
+public class RuedaTemporizadores<T> {
+
+    private final long tickMs;
+    private final int mascara;
+    private final List<List<Temporizador<T>>> ranuras;
+    private final long inicioMs;
+
+    // Mapa: clave -> temporizador vigente (para cancelar en O(1))
+    private final Map<Long, Temporizador<T>> vigentes = new ConcurrentHashMap<>();
+    // Programados desde otros hilos; el hilo de la rueda los ubica en su ranura
+    private final Queue<Temporizador<T>> nuevos = new ConcurrentLinkedQueue<>();
+
+    // Solo lo toca el hilo de la rueda
+    private long tickActual;
+
+    public RuedaTemporizadores(long tickMs, int ranuras, long inicioMs) {
+        if (Integer.bitCount(ranuras) != 1) {
+            throw new IllegalArgumentException("La cantidad de ranuras debe ser potencia de 2");
+        }
+        this.tickMs = tickMs;
+        this.mascara = ranuras - 1;
+        this.ranuras = new ArrayList<>(ranuras);
+        for (int i = 0; i < ranuras; i++) {
+            this.ranuras.add(new ArrayList<>());
+        }
+        this.inicioMs = inicioMs;
+    }
+
+    /**
+     * Programa (o reprograma) el vencimiento de la clave.
+     */
+    public void programar(Long clave, T dato, long venceEnMs) {
+        Temporizador<T> nuevo = new Temporizador<>(clave, dato, venceEnMs);
+        Temporizador<T> anterior = vigentes.put(clave, nuevo);
+        if (anterior != null) {
+            anterior.cancelado = true;
+        }
+        nuevos.add(nuevo);
+    }
+
+    /**
+     * Cancela el temporizador de la clave; se descarta cuando la rueda pase por su ranura.
+     */
+    public boolean cancelar(Long clave) {
+        Temporizador<T> t = vigentes.remove(clave);
+        if (t == null) return false;
+        t.cancelado = true;
+        return true;
+    }
+
+    /**
+     * Avanza la rueda hasta el instante indicado y devuelve los datos vencidos.
+     */
+    public List<T> avanzar(long ahoraMs) {
+        ubicarNuevos();
+
+        List<T> vencidos = new ArrayList<>();
+        long hasta = (ahoraMs - inicioMs) / tickMs;
+        while (tickActual <= hasta) {
+            Iterator<Temporizador<T>> it = ranuras.get((int) (tickActual & mascara)).iterator();
+            while (it.hasNext()) {
+                Temporizador<T> t = it.next();
+                if (t.cancelado) {
+                    it.remove();
+                } else if (t.vueltas > 0) {
+                    t.vueltas--;
+                } else {
+                    it.remove();
+                    if (vigentes.remove(t.clave, t)) {
+                        vencidos.add(t.dato);
+                    }
+                }
+            }
+            tickActual++;
+        }
+        return vencidos;
+    }
+
+    public int tamanio() {
+        return vigentes.size();
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private void ubicarNuevos() {
+        Temporizador<T> t;
+        while ((t = nuevos.poll()) != null) {
+            if (t.cancelado) continue;
+            // Redondeo hacia arriba (nunca vence antes de tiempo); lo ya vencido va en la ranura actual
+            long tick = Math.max(Math.floorDiv(t.venceEnMs - inicioMs + tickMs - 1, tickMs), tickActual);
+            t.vueltas = (tick - tickActual) / ranuras.size();
+            ranuras.get((int) (tick & mascara)).add(t);
+        }
+    }
+
+    private static final class Temporizador<T> {
+        final Long clave;
+        final T dato;
+        final long venceEnMs;
+        long vueltas;
+        volatile boolean cancelado;
+
+        Temporizador(Long clave, T dato, long venceEnMs) {
+            this.clave = clave;
+            this.dato = dato;
+            this.venceEnMs = venceEnMs;
+        }
+    }
+}
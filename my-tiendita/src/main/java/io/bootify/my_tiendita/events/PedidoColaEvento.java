@@ -0,0 +1,24 @@
+package io.bootify.my_tiendita.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+
+@Getter
+@AllArgsConstructor
+public class PedidoColaEvento {
+
+    public static final String ENCOLADO = "ENCOLADO";
+    public static final String CONFIRMADO = "CONFIRMADO";
+    public static final String CANCELADO = "CANCELADO";
+    public static final String EXPIRADO = "EXPIRADO";
+
+    private Long bodegaId;
+    private String tipo;
+    private Long pedidoId;
+    private String codigoPedido;
+    private BigDecimal total;
+
+}
@@ -6,9 +6,12 @@ import io.bootify.my_tiendita.tipo_movimiento.TipoMovimiento;
 import io.bootify.my_tiendita.tipo_movimiento.TipoMovimientoRepository;
 import io.bootify.my_tiendita.usuario.UsuarioRepository;
 import io.bootify.my_tiendita.util.NotFoundException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,6 +23,7 @@ public class InventarioService {
     private final ProductoBodegaRepository productoBodegaRepo;
     private final TipoMovimientoRepository tipoMovimientoRepo;
     private final UsuarioRepository usuarioRepo;
+    private final JdbcTemplate jdbcTemplate;
 
     private static final String NATURALEZA_ENTRADA = "ENTRADA";
     private static final String NATURALEZA_SALIDA = "SALIDA";
@@ -30,11 +34,13 @@ public class InventarioService {
             InventarioRepository movimientoRepo,
             ProductoBodegaRepository productoBodegaRepo,
             TipoMovimientoRepository tipoMovimientoRepo,
-            UsuarioRepository usuarioRepo) {
+            UsuarioRepository usuarioRepo,
+            JdbcTemplate jdbcTemplate) {
         this.movimientoRepo = movimientoRepo;
         this.productoBodegaRepo = productoBodegaRepo;
         this.tipoMovimientoRepo = tipoMovimientoRepo;
         this.usuarioRepo = usuarioRepo;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     public List<InventarioDTO> obtenerHistorial(Long productoBodegaId) {
@@ -82,6 +88,49 @@ public class InventarioService {
         movimientoRepo.save(mov);
     }
 
+    /**
+     * Salidas de varias ventas a la vez (confirmación de pedidos en lote).
+     * Los ProductoBodega llegan ya cargados: el stock se descuenta sobre las
+     * entidades (Hibernate agrupa los UPDATE al hacer flush) y los movimientos
+     * se insertan con un solo batch JDBC en vez de un INSERT por ítem.
+     */
+    public void registrarSalidasPorVentaEnLote(List<SalidaVenta> salidas) {
+        if (salidas.isEmpty()) return;
+        TipoMovimiento tipoVenta = tipoMovimientoRepo.findByNombre(MOVIMIENTO_VENTA)
+                .orElseThrow(() -> new NotFoundException("El tipo de movimiento 'VENTA' no está configurado en la BD"));
+
+        for (SalidaVenta salida : salidas) {
+            ProductoBodega pb = salida.productoBodega();
+            if (pb.getStock() < salida.cantidad()) {
+                throw new IllegalArgumentException(
+                    "Stock insuficiente para el producto: " + pb.getProducto().getNombre() +
+                    ". Stock actual: " + pb.getStock() + ", Solicitado: " + salida.cantidad()
+                );
+            }
+            pb.setStock(pb.getStock() - salida.cantidad());
+        }
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inventario (producto_bodega_id, tipo_movimiento_id, cantidad, motivo, referencia_id, usuario_id, fecha) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                salidas, salidas.size(),
+                (ps, salida) -> {
+                    ps.setLong(1, salida.productoBodega().getId());
+                    ps.setLong(2, tipoVenta.getId());
+                    ps.setInt(3, salida.cantidad());
+                    ps.setString(4, "Salida por Venta #" + salida.ventaId());
+                    ps.setLong(5, salida.ventaId());
+                    ps.setNull(6, Types.BIGINT);
+                    ps.setTimestamp(7, ahora);
+                });
+    }
+
+    /**
+     * Una línea de venta que descuenta stock.
+     */
+    public record SalidaVenta(ProductoBodega productoBodega, int cantidad, Long ventaId) {}
+
  
 
     private void procesarMovimientoDeStock(Inventario mov) {
@@ -0,0 +1,6 @@
+package io.bootify.my_tiendita.model;
+
+public enum PoliticaCola {
+    FIFO,           // Orden de llegada estricto
+    PRIORIDAD       // Hora objetivo según tipo de entrega (delivery/recojo) y antigüedad
+}
@@ -0,0 +1,9 @@
+package io.bootify.my_tiendita.notificacion;
+
+/**
+ * Conteo de no leídas de un usuario (reconciliación de ContadoresNoLeidas).
+ */
+public interface NoLeidasPorUsuario {
+    Long getUsuarioId();
+    Long getNoLeidas();
+}
@@ -10,7 +10,10 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.OffsetDateTime;
 
 @Entity
-@Table(name = "notificaciones")
+@Table(name = "notificaciones", indexes = {
+        // Últimas notificaciones de un usuario y páginas anteriores (keyset) por este índice
+        @Index(name = "idx_notificaciones_usuario_fecha", columnList = "usuario_destino_id, date_created")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
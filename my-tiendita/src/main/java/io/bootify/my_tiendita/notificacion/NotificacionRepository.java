@@ -1,6 +1,13 @@
 package io.bootify.my_tiendita.notificacion;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificacionRepository extends JpaRepository<Notificacion, Long> {
@@ -9,5 +16,37 @@ public interface NotificacionRepository extends JpaRepository<Notificacion, Long
 
     long countByUsuarioDestinoIdAndLeidoFalse(Long usuarioId);
 
-    List<Notificacion> findAllByOrderByDateCreatedAsc();
-}
\ No newline at end of file
+    // Reconciliación de contadores en memoria: un solo GROUP BY para muchos usuarios
+    @Query("SELECT n.usuarioDestino.id AS usuarioId, COUNT(n) AS noLeidas FROM Notificacion n " +
+           "WHERE n.leido = false AND n.usuarioDestino.id IN :usuarioIds " +
+           "GROUP BY n.usuarioDestino.id")
+    List<NoLeidasPorUsuario> contarNoLeidasPorUsuario(@Param("usuarioIds") Collection<Long> usuarioIds);
+
+    // Devuelve 1 solo si estaba sin leer (así el contador no se descuenta dos veces)
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.leido = true " +
+           "WHERE n.id = :id AND n.usuarioDestino.id = :usuarioId AND n.leido = false")
+    int marcarLeida(@Param("usuarioId") Long usuarioId, @Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.leido = true " +
+           "WHERE n.usuarioDestino.id = :usuarioId AND n.leido = false")
+    int marcarTodasLeidas(@Param("usuarioId") Long usuarioId);
+
+    // Primera página: las más recientes del usuario (usuarioDestino.id es la FK, no hace JOIN)
+    @Query("SELECT n FROM Notificacion n " +
+           "WHERE n.usuarioDestino.id = :usuarioId " +
+           "ORDER BY n.dateCreated DESC, n.id DESC")
+    List<Notificacion> findRecientes(@Param("usuarioId") Long usuarioId, Pageable pageable);
+
+    // Páginas siguientes por keyset: las anteriores a la última vista (fecha, id),
+    // sin OFFSET, así el costo no crece con la página
+    @Query("SELECT n FROM Notificacion n " +
+           "WHERE n.usuarioDestino.id = :usuarioId " +
+           "AND (n.dateCreated < :antesDe OR (n.dateCreated = :antesDe AND n.id < :antesId)) " +
+           "ORDER BY n.dateCreated DESC, n.id DESC")
+    List<Notificacion> findAnteriores(@Param("usuarioId") Long usuarioId,
+                                      @Param("antesDe") OffsetDateTime antesDe,
+                                      @Param("antesId") Long antesId,
+                                      Pageable pageable);
+}
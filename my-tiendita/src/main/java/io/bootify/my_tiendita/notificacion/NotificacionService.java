@@ -1,41 +1,55 @@
 package io.bootify.my_tiendita.notificacion;
 
-import io.bootify.my_tiendita.estructuras.GestorPilasNotificaciones; // ✅ Importar
+import io.bootify.my_tiendita.estructuras.ContadoresNoLeidas;
+import io.bootify.my_tiendita.estructuras.GestorNotificacionesRecientes;
+import io.bootify.my_tiendita.estructuras.NotificacionResumen;
 import io.bootify.my_tiendita.usuario.Usuario;
 import io.bootify.my_tiendita.usuario.UsuarioRepository;
-import jakarta.annotation.PostConstruct;
+import io.bootify.my_tiendita.util.TransaccionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class NotificacionService {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificacionService.class);
+
+    // Usuarios por consulta al reconciliar (tamaño del IN)
+    private static final int LOTE_RECONCILIACION = 500;
+
     private final NotificacionRepository notificacionRepository;
     private final UsuarioRepository usuarioRepository;
     
-    private final GestorPilasNotificaciones gestorPilas;
+    private final GestorNotificacionesRecientes gestorRecientes;
+    private final ContadoresNoLeidas contadoresNoLeidas;
+
+    // Sin consultar notificaciones ni contador en este tiempo, el usuario sale de memoria
+    @Value("${notificaciones.buffer.inactividad-minutos:30}")
+    private long minutosInactividad;
 
     public NotificacionService(NotificacionRepository notificacionRepository,
                                UsuarioRepository usuarioRepository,
-                               GestorPilasNotificaciones gestorPilas) {
+                               GestorNotificacionesRecientes gestorRecientes,
+                               ContadoresNoLeidas contadoresNoLeidas) {
         this.notificacionRepository = notificacionRepository;
         this.usuarioRepository = usuarioRepository;
-        this.gestorPilas = gestorPilas;
+        this.gestorRecientes = gestorRecientes;
+        this.contadoresNoLeidas = contadoresNoLeidas;
     }
 
 
-    @PostConstruct
-    public void inicializarPilas() {
-        List<Notificacion> todas = notificacionRepository.findAllByOrderByDateCreatedAsc();
-        for (Notificacion n : todas) {
-            gestorPilas.apilar(n.getUsuarioDestino().getId(), n);
-        }
-        System.out.println("✅ Estructura LIFO inicializada.");
-    }
-
     @Transactional
     public void notificar(Long usuarioDestinoId, String mensaje, String tipo, String url) {
         Usuario usuario = usuarioRepository.findById(usuarioDestinoId).orElseThrow();
@@ -50,12 +64,121 @@ public class NotificacionService {
 
         Notificacion guardada = notificacionRepository.save(notificacion); 
 
-        gestorPilas.apilar(usuarioDestinoId, guardada);
+        NotificacionResumen resumen = NotificacionResumen.de(guardada);
+        // Memoria solo tras el commit: si se revierte, el buffer no muestra una notificación inexistente
+        TransaccionUtils.despuesDelCommit(() -> {
+            gestorRecientes.agregar(usuarioDestinoId, resumen);
+            contadoresNoLeidas.sumar(usuarioDestinoId, 1);
+        });
     }
 
-    public List<Notificacion> obtenerMisNotificaciones(Long usuarioId) {
-        return gestorPilas.obtenerPilaComoLista(usuarioId);
+    /**
+     * No leídas del usuario desde memoria; solo la primera consulta hace el COUNT.
+     */
+    public long contarNoLeidas(Long usuarioId) {
+        gestorRecientes.registrarActividad(usuarioId);
+        return contadoresNoLeidas.obtener(usuarioId,
+                () -> notificacionRepository.countByUsuarioDestinoIdAndLeidoFalse(usuarioId));
     }
-    
-    
-}
\ No newline at end of file
+
+    @Transactional
+    public void marcarLeida(Long usuarioId, Long notificacionId) {
+        // 0 filas: ya estaba leída o no es del usuario; el contador no cambia
+        if (notificacionRepository.marcarLeida(usuarioId, notificacionId) == 0) return;
+        TransaccionUtils.despuesDelCommit(() -> {
+            gestorRecientes.marcarLeida(usuarioId, notificacionId);
+            contadoresNoLeidas.sumar(usuarioId, -1);
+        });
+    }
+
+    @Transactional
+    public void marcarTodasLeidas(Long usuarioId) {
+        int marcadas = notificacionRepository.marcarTodasLeidas(usuarioId);
+        if (marcadas > 0) {
+            TransaccionUtils.despuesDelCommit(() -> {
+                gestorRecientes.marcarTodasLeidas(usuarioId);
+                contadoresNoLeidas.sumar(usuarioId, -marcadas);
+            });
+        }
+    }
+
+    /**
+     * Mantenimiento de la memoria de notificaciones:
+     * 1. Desaloja buffers y contadores de usuarios que no consultan hace un rato.
+     * 2. Corrige los contadores restantes con la BD (cambios perdidos en carreras o
+     *    hechos fuera de este servicio). Un GROUP BY por cada LOTE_RECONCILIACION usuarios;
+     *    si un contador cambió mientras se contaba, se deja para la siguiente pasada.
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.no-leidas.reconciliar-ms:300000}")
+    public void reconciliarNoLeidas() {
+        try {
+            long antesDe = System.currentTimeMillis() - Duration.ofMinutes(minutosInactividad).toMillis();
+            for (Long usuarioId : gestorRecientes.desalojarInactivos(antesDe)) {
+                contadoresNoLeidas.quitar(usuarioId);
+            }
+
+            Map<Long, Long> enMemoria = contadoresNoLeidas.valores();
+            // Contadores sin buffer (quedaron de una carrera con el desalojo)
+            enMemoria.keySet().removeIf(usuarioId -> {
+                if (gestorRecientes.estaEnMemoria(usuarioId)) return false;
+                contadoresNoLeidas.quitar(usuarioId);
+                return true;
+            });
+
+            List<Long> usuarios = new ArrayList<>(enMemoria.keySet());
+            int corregidos = 0;
+            for (int i = 0; i < usuarios.size(); i += LOTE_RECONCILIACION) {
+                List<Long> lote = usuarios.subList(i, Math.min(i + LOTE_RECONCILIACION, usuarios.size()));
+                Map<Long, Long> enBd = new HashMap<>();
+                for (NoLeidasPorUsuario fila : notificacionRepository.contarNoLeidasPorUsuario(lote)) {
+                    enBd.put(fila.getUsuarioId(), fila.getNoLeidas());
+                }
+                for (Long usuarioId : lote) {
+                    long real = enBd.getOrDefault(usuarioId, 0L);
+                    long antes = enMemoria.get(usuarioId);
+                    if (antes != real && contadoresNoLeidas.corregir(usuarioId, antes, real)) {
+                        corregidos++;
+                    }
+                }
+            }
+            if (corregidos > 0) {
+                log.info("Contadores de no leídas corregidos: {}", corregidos);
+            }
+        } catch (Exception e) {
+            log.error("Error al reconciliar contadores de no leídas", e);
+        }
+    }
+
+    /**
+     * Las "limite" notificaciones más recientes. Si caben en el buffer se sirven
+     * desde memoria (cargándolo de la BD la primera vez que el usuario lo pide);
+     * si se piden más de las que guarda, se leen de la BD.
+     */
+    @Transactional(readOnly = true)
+    public List<NotificacionResumen> obtenerMisNotificaciones(Long usuarioId, int limite) {
+        if (limite <= gestorRecientes.getCapacidad()) {
+            asegurarRecientes(usuarioId);
+            return gestorRecientes.recientes(usuarioId, limite);
+        }
+        return resumir(notificacionRepository.findRecientes(usuarioId, PageRequest.of(0, limite)));
+    }
+
+    /**
+     * Página anterior a la última notificación vista (keyset por fecha e ID).
+     */
+    @Transactional(readOnly = true)
+    public List<NotificacionResumen> obtenerAnteriores(Long usuarioId, OffsetDateTime antesDe, Long antesId, int limite) {
+        return resumir(notificacionRepository.findAnteriores(usuarioId, antesDe, antesId, PageRequest.of(0, limite)));
+    }
+
+    // Carga las últimas N del usuario la primera vez (no toca el proxy de usuarioDestino)
+    private void asegurarRecientes(Long usuarioId) {
+        if (gestorRecientes.estaHidratado(usuarioId)) return;
+        gestorRecientes.hidratar(usuarioId, () ->
+                resumir(notificacionRepository.findRecientes(usuarioId, PageRequest.of(0, gestorRecientes.getCapacidad()))));
+    }
+
+    private static List<NotificacionResumen> resumir(List<Notificacion> notificaciones) {
+        return notificaciones.stream().map(NotificacionResumen::de).toList();
+    }
+}
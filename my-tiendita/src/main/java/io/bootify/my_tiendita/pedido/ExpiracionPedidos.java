@@ -0,0 +1,161 @@
+package io.bootify.my_tiendita.pedido;
+
+import io.bootify.my_tiendita.bodegaConfig.BodegaConfig;
+import io.bootify.my_tiendita.bodegaConfig.BodegaConfigRepository;
+import io.bootify.my_tiendita.estructuras.RuedaTemporizadores;
+import io.bootify.my_tiendita.events.PedidoColaEvento;
+import io.bootify.my_tiendita.model.EstadoPedido;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancela los pedidos que siguen PENDIENTE después del tiempo máximo de su bodega
+ * (BodegaConfig.minutosExpiracionPedido, o el valor global si no lo configuró).
+ *
+ * Cada pedido encolado tiene un temporizador en una rueda con hash; al confirmarse
+ * o cancelarse se quita. Un solo hilo mueve la rueda y los vencidos se expiran en
+ * hilos virtuales con PedidoService.expirarPedido. Al arrancar se reprograman
+ * los pendientes que ya había en la BD.
+ */
+@Service
+public class ExpiracionPedidos {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiracionPedidos.class);
+
+    private static final int RANURAS = 512;
+
+    private final PedidoRepository pedidoRepository;
+    private final BodegaConfigRepository bodegaConfigRepository;
+    private final PedidoService pedidoService;
+
+    // Tiempo máximo por defecto en PENDIENTE (0 = no expirar)
+    @Value("${pedidos.expiracion.minutos:120}")
+    private int minutosPorDefecto;
+
+    // Resolución de la rueda: un pedido expira como mucho un tick tarde
+    @Value("${pedidos.expiracion.tick-ms:1000}")
+    private long tickMs;
+
+    private RuedaTemporizadores<Vencimiento> rueda;
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(
+            r -> Thread.ofPlatform().name("rueda-expiracion-pedidos").daemon().unstarted(r));
+    private final ExecutorService hilosVirtuales = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ExpiracionPedidos(PedidoRepository pedidoRepository,
+                             BodegaConfigRepository bodegaConfigRepository,
+                             PedidoService pedidoService) {
+        this.pedidoRepository = pedidoRepository;
+        this.bodegaConfigRepository = bodegaConfigRepository;
+        this.pedidoService = pedidoService;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        rueda = new RuedaTemporizadores<>(tickMs, RANURAS, System.currentTimeMillis());
+        reloj.scheduleAtFixedRate(this::avanzar, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reprograma los pendientes que quedaron de antes del reinicio (solo id, bodega y fecha).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void programarPendientes() {
+        hilosVirtuales.submit(() -> {
+            try {
+                Map<Long, Integer> minutosPorBodega = new HashMap<>();
+                for (BodegaConfig config : bodegaConfigRepository.findAll()) {
+                    minutosPorBodega.put(config.getBodega().getId(), minutosDe(config));
+                }
+                List<PedidoPendienteProjection> pendientes =
+                        pedidoRepository.findPendientesParaExpirar(EstadoPedido.PENDIENTE);
+                for (PedidoPendienteProjection p : pendientes) {
+                    int minutos = minutosPorBodega.getOrDefault(p.getBodegaId(), minutosPorDefecto);
+                    programar(p.getId(), p.getBodegaId(), p.getDateCreated(), minutos);
+                }
+                log.info("Expiración programada para {} pedidos pendientes.", rueda.tamanio());
+            } catch (Exception e) {
+                log.error("Error al programar expiración de pedidos", e);
+            }
+        });
+    }
+
+    /**
+     * Tras el commit: un pedido nuevo arranca su temporizador; uno atendido lo pierde.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(final PedidoColaEvento evento) {
+        if (PedidoColaEvento.ENCOLADO.equals(evento.getTipo())) {
+            int minutos = bodegaConfigRepository.findByBodegaId(evento.getBodegaId())
+                    .map(this::minutosDe)
+                    .orElse(minutosPorDefecto);
+            programar(evento.getPedidoId(), evento.getBodegaId(), OffsetDateTime.now(), minutos);
+        } else {
+            rueda.cancelar(evento.getPedidoId());
+        }
+    }
+
+    public int programados() {
+        return rueda.tamanio();
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+        hilosVirtuales.shutdown();
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private void programar(Long pedidoId, Long bodegaId, OffsetDateTime desde, int minutos) {
+        if (minutos <= 0) return;
+        OffsetDateTime inicio = desde != null ? desde : OffsetDateTime.now();
+        long venceEn = inicio.plus(Duration.ofMinutes(minutos)).toInstant().toEpochMilli();
+        rueda.programar(pedidoId, new Vencimiento(pedidoId, bodegaId), venceEn);
+    }
+
+    private void avanzar() {
+        try {
+            for (Vencimiento v : rueda.avanzar(System.currentTimeMillis())) {
+                hilosVirtuales.submit(() -> expirar(v));
+            }
+        } catch (Exception e) {
+            // Una excepción aquí detendría el reloj para siempre
+            log.error("Error en la rueda de expiración de pedidos", e);
+        }
+    }
+
+    private void expirar(Vencimiento v) {
+        try {
+            if (pedidoService.expirarPedido(v.bodegaId(), v.pedidoId())) {
+                log.info("Pedido {} expirado por falta de atención.", v.pedidoId());
+            }
+        } catch (Exception e) {
+            log.error("Error al expirar el pedido {}", v.pedidoId(), e);
+        }
+    }
+
+    private int minutosDe(BodegaConfig config) {
+        return config.getMinutosExpiracionPedido() != null ? config.getMinutosExpiracionPedido() : minutosPorDefecto;
+    }
+
+    private record Vencimiento(Long pedidoId, Long bodegaId) {}
+}
@@ -20,7 +20,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "Pedidos")
+@Table(name = "Pedidos", indexes = {
+        // Cola en BD: el pendiente más antiguo de cada bodega se toma por este índice
+        @Index(name = "idx_pedidos_bodega_estado_fecha", columnList = "bodega_id, estado, date_created")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
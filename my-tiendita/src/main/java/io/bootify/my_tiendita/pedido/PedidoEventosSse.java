@@ -0,0 +1,70 @@
+package io.bootify.my_tiendita.pedido;
+
+import io.bootify.my_tiendita.events.PedidoColaEvento;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Registro de suscriptores SSE por bodega para la pantalla de pedidos.
+ * Las conexiones son asíncronas (no ocupan un hilo cada una); el evento se
+ * reparte desde el hilo que lo publica, una vez confirmada la transacción.
+ */
+@Service
+public class PedidoEventosSse {
+
+    // 30 min; el EventSource del navegador se reconecta solo al vencer
+    private static final long TIMEOUT_MS = 30 * 60 * 1000L;
+
+    // Mapa: ID Bodega -> conexiones abiertas
+    private final Map<Long, Set<SseEmitter>> suscriptores = new ConcurrentHashMap<>();
+
+    public SseEmitter suscribir(Long bodegaId) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MS);
+        suscriptores.compute(bodegaId, (id, conexiones) -> {
+            Set<SseEmitter> destino = conexiones != null ? conexiones : new CopyOnWriteArraySet<>();
+            destino.add(emitter);
+            return destino;
+        });
+
+        Runnable quitar = () -> desuscribir(bodegaId, emitter);
+        emitter.onCompletion(quitar);
+        emitter.onTimeout(quitar);
+        emitter.onError(e -> quitar.run());
+        return emitter;
+    }
+
+    /**
+     * Solo después del commit: si la transacción falla, la pantalla no se entera
+     * de un pedido que nunca existió. Sin transacción activa se envía de inmediato.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(final PedidoColaEvento evento) {
+        Set<SseEmitter> conexiones = suscriptores.get(evento.getBodegaId());
+        if (conexiones == null || conexiones.isEmpty()) return;
+
+        for (SseEmitter emitter : conexiones) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(evento.getTipo())
+                        .data(evento));
+            } catch (IOException | IllegalStateException e) {
+                // Conexión cerrada por el navegador
+                desuscribir(evento.getBodegaId(), emitter);
+            }
+        }
+    }
+
+    private void desuscribir(Long bodegaId, SseEmitter emitter) {
+        suscriptores.computeIfPresent(bodegaId, (id, conexiones) -> {
+            conexiones.remove(emitter);
+            return conexiones.isEmpty() ? null : conexiones;
+        });
+    }
+}
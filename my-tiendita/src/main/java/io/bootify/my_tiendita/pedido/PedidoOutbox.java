@@ -0,0 +1,60 @@
+package io.bootify.my_tiendita.pedido;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Outbox de pedidos confirmados: se escribe en la misma transacción que el cambio
+ * de estado del pedido y ProcesadorPedidoOutbox la convierte en Venta después.
+ * Un pedido tiene como máximo una fila (pedido_id único).
+ */
+@Entity
+@Table(name = "pedido_outbox", indexes = {
+        // El procesador busca las filas PENDIENTE cuyo próximo intento ya venció
+        @Index(name = "idx_pedido_outbox_estado_intento", columnList = "estado, proximo_intento")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class PedidoOutbox {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String PROCESADO = "PROCESADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pedido_id", nullable = false, unique = true)
+    private Long pedidoId;
+
+    @Column(nullable = false, length = 20)
+    private String estado;
+
+    @Column(nullable = false)
+    private Integer intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private OffsetDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "procesado_en")
+    private OffsetDateTime procesadoEn;
+
+    @CreatedDate
+    @Column(name = "date_created", nullable = false, updatable = false)
+    private OffsetDateTime dateCreated;
+
+    @LastModifiedDate
+    @Column(name = "last_updated", nullable = false)
+    private OffsetDateTime lastUpdated;
+}
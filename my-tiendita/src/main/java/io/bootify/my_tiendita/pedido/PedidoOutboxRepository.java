@@ -0,0 +1,36 @@
+package io.bootify.my_tiendita.pedido;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface PedidoOutboxRepository extends JpaRepository<PedidoOutbox, Long> {
+
+    boolean existsByPedidoId(Long pedidoId);
+
+    @Query("SELECT o.id FROM PedidoOutbox o WHERE o.pedidoId = :pedidoId AND o.estado = 'PENDIENTE'")
+    Optional<Long> findPendienteIdByPedidoId(@Param("pedidoId") Long pedidoId);
+
+    // Filas listas para procesar (sin bloquear; el bloqueo se toma al reclamar cada una)
+    @Query("SELECT o.id FROM PedidoOutbox o " +
+           "WHERE o.estado = 'PENDIENTE' AND o.proximoIntento <= :ahora " +
+           "ORDER BY o.proximoIntento ASC")
+    List<Long> findIdsListos(@Param("ahora") OffsetDateTime ahora, Pageable pageable);
+
+    // La fila queda bloqueada hasta el commit: otro hilo u otra instancia la salta
+    @Query(value = "SELECT * FROM pedido_outbox " +
+           "WHERE id = :id AND estado = 'PENDIENTE' " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<PedidoOutbox> reclamar(@Param("id") Long id);
+
+    long countByEstado(String estado);
+
+    @Query("SELECT MIN(o.dateCreated) FROM PedidoOutbox o WHERE o.estado = 'PENDIENTE'")
+    OffsetDateTime findPendienteMasAntiguo();
+}
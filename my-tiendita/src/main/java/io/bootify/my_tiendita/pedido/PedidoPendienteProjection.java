@@ -0,0 +1,12 @@
+package io.bootify.my_tiendita.pedido;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Lo mínimo para programar la expiración de un pedido pendiente.
+ */
+public interface PedidoPendienteProjection {
+    Long getId();
+    Long getBodegaId();
+    OffsetDateTime getDateCreated();
+}
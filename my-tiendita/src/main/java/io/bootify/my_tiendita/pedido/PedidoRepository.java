@@ -5,7 +5,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
 
@@ -22,6 +25,89 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     // 1. Recuperar TODOS los pendientes globales (para reiniciar la cola en memoria)
     List<Pedido> findByEstadoOrderByDateCreatedAsc(EstadoPedido estado);
 
+    // 1b. Bodegas que tienen pedidos en ese estado (para precargar sus colas en segundo plano)
+    @Query("SELECT DISTINCT p.bodega.id FROM Pedido p WHERE p.estado = :estado")
+    List<Long> findBodegaIdsByEstado(@Param("estado") EstadoPedido estado);
+
+    // 1c. Pendientes (solo id, bodega y fecha) para programar su expiración al arrancar
+    @Query("SELECT p.id AS id, p.bodega.id AS bodegaId, p.dateCreated AS dateCreated " +
+           "FROM Pedido p WHERE p.estado = :estado")
+    List<PedidoPendienteProjection> findPendientesParaExpirar(@Param("estado") EstadoPedido estado);
+
+    // 1d. Fecha del pedido más reciente (el generador de códigos no retrocede tras un reinicio)
+    @Query("SELECT MAX(p.dateCreated) FROM Pedido p")
+    OffsetDateTime findUltimaFechaCreacion();
+
+    // 2. Detalle de los pedidos visibles de la cola en una sola consulta
+    @Query("SELECT p FROM Pedido p " +
+           "JOIN FETCH p.bodega " +
+           "LEFT JOIN FETCH p.usuario " +
+           "LEFT JOIN FETCH p.venta " +
+           "WHERE p.id IN :ids")
+    List<Pedido> findAllConRelacionesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p FROM Pedido p " +
+           "JOIN FETCH p.bodega " +
+           "LEFT JOIN FETCH p.usuario " +
+           "LEFT JOIN FETCH p.venta " +
+           "WHERE p.id = :id")
+    Optional<Pedido> findConRelacionesById(@Param("id") Long id);
+
+    // --- Cola en BD (varias instancias de la app) ---
+
+    // Reclama el pendiente más antiguo: la fila queda bloqueada hasta el commit y
+    // las demás transacciones la saltan (SKIP LOCKED) en vez de esperar o repetirla
+    @Query(value = "SELECT * FROM pedidos " +
+           "WHERE bodega_id = :bodegaId AND estado = 'PENDIENTE' " +
+           "ORDER BY date_created ASC, id ASC " +
+           "LIMIT 1 " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<Pedido> reclamarSiguientePendiente(@Param("bodegaId") Long bodegaId);
+
+    // Variante para la política PRIORIDAD: el orden se decide en Java y se intenta
+    // bloquear cada candidato; si otro nodo ya lo tiene, se pasa al siguiente
+    @Query(value = "SELECT * FROM pedidos " +
+           "WHERE id = :id AND estado = 'PENDIENTE' " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<Pedido> reclamarPendiente(@Param("id") Long id);
+
+    // Confirmación en lote: reclama hasta :limite pendientes de una vez (mismo orden FIFO)
+    @Query(value = "SELECT * FROM pedidos " +
+           "WHERE bodega_id = :bodegaId AND estado = 'PENDIENTE' " +
+           "ORDER BY date_created ASC, id ASC " +
+           "LIMIT :limite " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Pedido> reclamarSiguientesPendientes(@Param("bodegaId") Long bodegaId, @Param("limite") int limite);
+
+    // Confirmación en lote por IDs elegidos en pantalla
+    @Query(value = "SELECT * FROM pedidos " +
+           "WHERE id IN (:ids) AND bodega_id = :bodegaId AND estado = 'PENDIENTE' " +
+           "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Pedido> reclamarPendientes(@Param("bodegaId") Long bodegaId, @Param("ids") Collection<Long> ids);
+
+    // Detalles y productos de varios pedidos a la vez (evita un SELECT por pedido al confirmar)
+    @Query("SELECT DISTINCT p FROM Pedido p " +
+           "JOIN FETCH p.bodega " +
+           "LEFT JOIN FETCH p.usuario " +
+           "LEFT JOIN FETCH p.metodoPago " +
+           "LEFT JOIN FETCH p.detalles d " +
+           "LEFT JOIN FETCH d.productoBodega " +
+           "WHERE p.id IN :ids")
+    List<Pedido> findConDetallesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p FROM Pedido p " +
+           "JOIN FETCH p.bodega " +
+           "LEFT JOIN FETCH p.usuario " +
+           "LEFT JOIN FETCH p.venta " +
+           "WHERE p.bodega.id = :bodegaId AND p.estado = :estado " +
+           "ORDER BY p.dateCreated ASC, p.id ASC")
+    List<Pedido> findConRelacionesByBodegaIdAndEstado(@Param("bodegaId") Long bodegaId,
+                                                      @Param("estado") EstadoPedido estado);
+
     @Query("SELECT p FROM Pedido p " +
            "JOIN FETCH p.usuario " +
            "JOIN FETCH p.bodega " +
@@ -8,7 +8,9 @@ import io.bootify.my_tiendita.detalle_pedido.DetallePedido;
 import io.bootify.my_tiendita.detalle_pedido.DetallePedidoDTO;
 import io.bootify.my_tiendita.detalle_venta.DetalleVentaDTO;
 import io.bootify.my_tiendita.estructuras.GestorColasPedidos;
+import io.bootify.my_tiendita.estructuras.PedidoEnCola;
 import io.bootify.my_tiendita.events.BeforeDeletePedido;
+import io.bootify.my_tiendita.events.PedidoColaEvento;
 import io.bootify.my_tiendita.model.EstadoPedido;
 import io.bootify.my_tiendita.model.MetodoEntrega;
 import io.bootify.my_tiendita.notificacion.NotificacionService;
@@ -18,12 +20,19 @@ import io.bootify.my_tiendita.producto_bodega.ProductoBodegaRepository;
 import io.bootify.my_tiendita.usuario.Usuario;
 import io.bootify.my_tiendita.usuario.UsuarioRepository;
 import io.bootify.my_tiendita.util.CustomCollectors;
+import io.bootify.my_tiendita.util.GeneradorCodigoPedido;
 import io.bootify.my_tiendita.util.GeoUtils;
 import io.bootify.my_tiendita.util.NotFoundException;
+import io.bootify.my_tiendita.util.TransaccionUtils;
 import io.bootify.my_tiendita.venta.VentaDTO;
+import io.bootify.my_tiendita.venta.VentaRepository;
 import io.bootify.my_tiendita.venta.VentaService;
-import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,12 +40,16 @@ import java.time.LocalTime;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 public class PedidoService {
 
+    private static final Logger log = LoggerFactory.getLogger(PedidoService.class);
+
     private final PedidoRepository pedidoRepository;
     private final UsuarioRepository usuarioRepository;
     private final BodegaRepository bodegaRepository;
@@ -47,6 +60,23 @@ public class PedidoService {
     private final BodegaConfigRepository bodegaConfigRepository;
     private final GestorColasPedidos gestorColas;
     private final ApplicationEventPublisher publisher;
+    private final PedidoOutboxRepository outboxRepository;
+    private final VentaRepository ventaRepository;
+    private final GeneradorCodigoPedido generadorCodigo;
+
+    // Cola de pedidos: "memoria" (una sola instancia) o "bd" (SKIP LOCKED, varias instancias)
+    @Value("${pedidos.cola.modo:memoria}")
+    private String modoCola;
+
+    // Precargar las colas en segundo plano al arrancar (si no, solo se cargan al primer acceso)
+    @Value("${pedidos.cola.precarga:true}")
+    private boolean precargaColas;
+
+    // Tope de pedidos por confirmación en lote (una transacción no debe crecer sin límite)
+    @Value("${pedidos.lote.maximo:50}")
+    private int maximoLote;
+
+    private final AtomicInteger bodegasPorPrecargar = new AtomicInteger();
 
     public PedidoService(PedidoRepository pedidoRepository,
                          UsuarioRepository usuarioRepository,
@@ -57,7 +87,10 @@ public class PedidoService {
                          BodegaMetodoPagoRepository bodegaMetodoPagoRepository,
                          BodegaConfigRepository bodegaConfigRepository,
                          GestorColasPedidos gestorColas,
-                         ApplicationEventPublisher publisher) {
+                         ApplicationEventPublisher publisher,
+                         PedidoOutboxRepository outboxRepository,
+                         VentaRepository ventaRepository,
+                         GeneradorCodigoPedido generadorCodigo) {
         this.pedidoRepository = pedidoRepository;
         this.usuarioRepository = usuarioRepository;
         this.bodegaRepository = bodegaRepository;
@@ -68,16 +101,45 @@ public class PedidoService {
         this.bodegaConfigRepository = bodegaConfigRepository;
         this.gestorColas = gestorColas;
         this.publisher = publisher;
+        this.outboxRepository = outboxRepository;
+        this.ventaRepository = ventaRepository;
+        this.generadorCodigo = generadorCodigo;
     }
 
-    @PostConstruct
-    public void inicializarColas() {
-        List<Pedido> pendientes = pedidoRepository.findByEstadoOrderByDateCreatedAsc(EstadoPedido.PENDIENTE);
-        for (Pedido p : pendientes) {
-            if (p.getBodega() != null) {
-                gestorColas.encolar(p.getBodega().getId(), p);
+    /**
+     * Precarga de colas en un hilo virtual, después de que la app está lista:
+     * el arranque no espera al backlog y, mientras tanto, cada bodega se
+     * hidrata igual la primera vez que se consulta su cola.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargarColas() {
+        if (colaEnBd() || !precargaColas) return;
+        Thread.ofVirtual().name("precarga-colas-pedidos").start(() -> {
+            try {
+                List<Long> bodegaIds = pedidoRepository.findBodegaIdsByEstado(EstadoPedido.PENDIENTE);
+                bodegasPorPrecargar.set(bodegaIds.size());
+                for (Long bodegaId : bodegaIds) {
+                    asegurarCola(bodegaId);
+                }
+                log.info("✅ Colas de pedidos precargadas ({} bodegas).", bodegaIds.size());
+            } catch (Exception e) {
+                log.error("Error al precargar colas de pedidos", e);
             }
-        }
+        });
+    }
+
+    /**
+     * Progreso de la precarga de colas (bodegas con pendientes vs. ya hidratadas).
+     */
+    public Map<String, Object> estadoPrecargaColas() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        int total = bodegasPorPrecargar.get();
+        int listas = gestorColas.bodegasHidratadas();
+        estado.put("modo", modoCola);
+        estado.put("bodegasConPendientes", total);
+        estado.put("bodegasHidratadas", listas);
+        estado.put("progreso", total == 0 ? 1.0 : Math.min(1.0, (double) listas / total));
+        return estado;
     }
 
     // ==========================================
@@ -237,7 +299,7 @@ public class PedidoService {
         pedido.setDireccionEntrega(pedidoDTO.getDireccionEntrega());
         pedido.setTelefonoContacto(pedidoDTO.getTelefonoContacto());
         pedido.setEstado(EstadoPedido.PENDIENTE);
-        pedido.setCodigoPedido("PED-" + System.currentTimeMillis()); 
+        pedido.setCodigoPedido(generadorCodigo.generar("PED"));
         pedido.setFechaPedido(java.time.LocalTime.now());
 
     
@@ -277,7 +339,7 @@ public class PedidoService {
         pedido.setTotal(totalCalculado);
         
         Pedido pedidoGuardado = pedidoRepository.save(pedido);
-        gestorColas.encolar(bodega.getId(), pedidoGuardado);
+        encolar(bodega.getId(), pedidoGuardado);
         
         if(bodega.getUsuario() != null) {
             notificacionService.notificar(
@@ -297,22 +359,47 @@ public class PedidoService {
 
     @Transactional(readOnly = true)
     public PedidoDTO obtenerSiguientePedidoAAtender(Long bodegaId) {
-        Pedido siguienteEnMemoria = gestorColas.verSiguiente(bodegaId);
+        if (colaEnBd()) {
+            List<PedidoDTO> cola = obtenerColaPendientes(bodegaId);
+            return cola.isEmpty() ? null : cola.get(0);
+        }
+
+        asegurarCola(bodegaId);
+        PedidoEnCola siguienteEnMemoria = gestorColas.verSiguiente(bodegaId);
         
         if (siguienteEnMemoria != null) {
            
-            return pedidoRepository.findById(siguienteEnMemoria.getId())
+            return pedidoRepository.findConRelacionesById(siguienteEnMemoria.id())
                     .map(this::mapToDTO)
                     .orElse(null);
         }
         return null;
     }
 
+    /**
+     * Cola de espera en orden FIFO. La cola en memoria solo tiene resúmenes;
+     * el detalle de todos los pedidos se trae con UNA consulta (no una por pedido).
+     */
     @Transactional(readOnly = true)
     public List<PedidoDTO> obtenerColaPendientes(Long bodegaId) {
-        return gestorColas.obtenerCola(bodegaId).stream()
-            
-                .map(p -> pedidoRepository.findById(p.getId()).orElse(null))
+        if (colaEnBd()) {
+            return pendientesEnOrden(bodegaId).stream()
+                    .map(this::mapToDTO)
+                    .collect(Collectors.toList());
+        }
+
+        asegurarCola(bodegaId);
+        List<PedidoEnCola> cola = gestorColas.obtenerCola(bodegaId);
+        if (cola.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = cola.stream().map(PedidoEnCola::id).toList();
+        Map<Long, Pedido> porId = pedidoRepository.findAllConRelacionesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Pedido::getId, p -> p));
+
+        return ids.stream()
+                .map(porId::get)
                 .filter(Objects::nonNull)
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
@@ -330,14 +417,330 @@ public class PedidoService {
 
     @Transactional
     public void confirmarSiguientePedido(Long bodegaId) {
-        Pedido pedido = gestorColas.desencolar(bodegaId);
-        if (pedido == null) throw new IllegalArgumentException("La cola está vacía.");
-        confirmarPedidoLogica(pedido);
+        if (colaEnBd()) {
+            // El bloqueo de la fila dura hasta el commit: ningún otro nodo puede confirmarla
+            Pedido pedido = reclamarSiguienteEnBd(bodegaId)
+                    .orElseThrow(() -> new IllegalArgumentException("La cola está vacía."));
+            confirmarPedidoLogica(pedido);
+            return;
+        }
+
+        asegurarCola(bodegaId);
+        while (true) {
+            PedidoEnCola enCola = gestorColas.desencolar(bodegaId);
+            if (enCola == null) throw new IllegalArgumentException("La cola está vacía.");
+            Pedido pedido = pedidoRepository.findById(enCola.id()).orElse(null);
+            // Mismo filtro que el lote: si ya no está pendiente, se descarta y se pasa al siguiente
+            if (pedido == null || !pedido.getBodega().getId().equals(bodegaId)
+                    || pedido.getEstado() != EstadoPedido.PENDIENTE) {
+                continue;
+            }
+            // Si la transacción no llega a confirmarse (incluido el commit), el pedido vuelve a la cola
+            TransaccionUtils.siSeRevierte(() -> gestorColas.encolar(bodegaId, enCola));
+            confirmarPedidoLogica(pedido);
+            return;
+        }
+    }
+
+    /**
+     * Confirma varios pedidos en una sola transacción (horas punta): los IDs indicados
+     * o, si no se indican, los siguientes "cantidad" de la cola. Los pedidos y sus
+     * detalles se leen con una consulta y las ventas se crean con VentaService.crearEnLote,
+     * que carga productos y métodos de pago una sola vez. Si algo falla no se confirma
+     * ninguno y, en modo memoria, los pedidos vuelven a la cola.
+     *
+     * @return cantidad de pedidos confirmados
+     */
+    // Tope de pedidos por lote (pedidos.lote.maximo); la pantalla del bodeguero no ofrece más
+    public int getMaximoLote() {
+        return maximoLote;
+    }
+
+    @Transactional
+    public int confirmarPedidosEnLote(Long bodegaId, List<Long> pedidoIds, int cantidad) {
+        boolean porIds = pedidoIds != null && !pedidoIds.isEmpty();
+        int limite = Math.min(porIds ? pedidoIds.size() : cantidad, maximoLote);
+        if (limite <= 0) {
+            throw new IllegalArgumentException("Indica cuántos pedidos confirmar.");
+        }
+
+        List<Long> reclamados = new ArrayList<>();
+        List<PedidoEnCola> sacadosDeMemoria = new ArrayList<>();
+        if (colaEnBd()) {
+            // Las filas quedan bloqueadas hasta el commit; otros nodos las saltan
+            List<Pedido> filas;
+            if (porIds) {
+                filas = pedidoRepository.reclamarPendientes(bodegaId, pedidoIds.subList(0, limite));
+            } else if (ordenDe(bodegaId) == GestorColasPedidos.ORDEN_LLEGADA) {
+                filas = pedidoRepository.reclamarSiguientesPendientes(bodegaId, limite);
+            } else {
+                filas = new ArrayList<>();
+                for (Pedido candidato : pendientesEnOrden(bodegaId)) {
+                    if (filas.size() == limite) break;
+                    pedidoRepository.reclamarPendiente(candidato.getId()).ifPresent(filas::add);
+                }
+            }
+            filas.forEach(p -> reclamados.add(p.getId()));
+        } else {
+            asegurarCola(bodegaId);
+            for (int i = 0; i < limite; i++) {
+                PedidoEnCola enCola = porIds
+                        ? gestorColas.quitar(bodegaId, pedidoIds.get(i))
+                        : gestorColas.desencolar(bodegaId);
+                if (enCola == null) {
+                    if (porIds) continue;
+                    break;
+                }
+                sacadosDeMemoria.add(enCola);
+                reclamados.add(enCola.id());
+            }
+        }
+
+        if (reclamados.isEmpty()) {
+            throw new IllegalArgumentException("No hay pedidos pendientes para confirmar.");
+        }
+
+        // Si la transacción se revierte, lo sacado de la cola en memoria debe volver
+        TransaccionUtils.siSeRevierte(() -> sacadosDeMemoria.forEach(p -> gestorColas.encolar(bodegaId, p)));
+
+        Map<Long, Pedido> porId = pedidoRepository.findConDetallesByIdIn(reclamados).stream()
+                .collect(Collectors.toMap(Pedido::getId, p -> p));
+
+        List<Pedido> pedidos = new ArrayList<>();
+        List<VentaDTO> ventas = new ArrayList<>();
+        Long metodoPagoPorDefecto = null;
+        for (Long id : reclamados) {
+            Pedido pedido = porId.get(id);
+            if (pedido == null || !pedido.getBodega().getId().equals(bodegaId)
+                    || pedido.getEstado() != EstadoPedido.PENDIENTE) {
+                continue;
+            }
+            Long metodoPagoId;
+            if (pedido.getMetodoPago() != null) {
+                metodoPagoId = pedido.getMetodoPago().getId();
+            } else {
+                if (metodoPagoPorDefecto == null) {
+                    metodoPagoPorDefecto = metodoPagoPorDefecto(bodegaId);
+                }
+                metodoPagoId = metodoPagoPorDefecto;
+            }
+            pedidos.add(pedido);
+            ventas.add(ventaDesdePedido(pedido, metodoPagoId));
+        }
+
+        // Mismo orden que "ventas"; el enlace pedido -> venta es lo que hace
+        // idempotente a convertirEnVenta si el pedido llega también a la outbox
+        List<Long> ventaIds = ventaService.crearEnLote(bodegaId, ventas);
+
+        for (int i = 0; i < pedidos.size(); i++) {
+            Pedido pedido = pedidos.get(i);
+            pedido.setVenta(ventaRepository.getReferenceById(ventaIds.get(i)));
+            pedido.setEstado(EstadoPedido.EN_PREPARACION);
+        }
+        pedidoRepository.saveAll(pedidos);
+        for (Pedido pedido : pedidos) {
+            publicarEvento(PedidoColaEvento.CONFIRMADO, pedido);
+        }
+        return pedidos.size();
     }
 
+    /**
+     * La bodega rechaza un pedido pendiente: sale de la cola y se avisa al cliente.
+     * Primero se reclama (igual que expirarPedido), así no puede cancelarse un
+     * pedido que otro bodeguero está confirmando a la vez.
+     */
+    @Transactional
+    public void cancelarPedido(Long bodegaId, Long pedidoId) {
+        if (colaEnBd()) {
+            // Bloqueada hasta el commit; si otro nodo la está confirmando, se salta
+            if (pedidoRepository.reclamarPendiente(pedidoId).isEmpty()) {
+                throw new IllegalArgumentException("Solo se pueden cancelar pedidos pendientes.");
+            }
+        } else {
+            asegurarCola(bodegaId);
+            PedidoEnCola enCola = gestorColas.quitar(bodegaId, pedidoId);
+            if (enCola == null) {
+                throw new IllegalArgumentException("Solo se pueden cancelar pedidos pendientes.");
+            }
+            TransaccionUtils.siSeRevierte(() -> gestorColas.encolar(bodegaId, enCola));
+        }
+
+        Pedido pedido = pedidoRepository.findConRelacionesById(pedidoId)
+                .orElseThrow(() -> new NotFoundException("Pedido no encontrado"));
+        if (!pedido.getBodega().getId().equals(bodegaId)) {
+            throw new IllegalArgumentException("El pedido no pertenece a esta bodega.");
+        }
+        if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
+            throw new IllegalArgumentException("Solo se pueden cancelar pedidos pendientes.");
+        }
+
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        pedidoRepository.save(pedido);
+        publicarEvento(PedidoColaEvento.CANCELADO, pedido);
+
+        if (pedido.getUsuario() != null) {
+            notificacionService.notificar(
+                pedido.getUsuario().getId(),
+                "Tu pedido #" + pedido.getCodigoPedido() + " fue cancelado por la bodega",
+                "PEDIDO",
+                "/cliente/mis-pedidos"
+            );
+        }
+    }
+
+    /**
+     * Cancela un pedido que pasó su tiempo máximo en PENDIENTE (lo dispara
+     * ExpiracionPedidos). Si entretanto alguien lo tomó de la cola, no hace nada.
+     * El stock no se toca: en este flujo solo se descuenta al crear la venta.
+     *
+     * @return true si el pedido expiró
+     */
+    @Transactional
+    public boolean expirarPedido(Long bodegaId, Long pedidoId) {
+        if (colaEnBd()) {
+            // Bloqueada hasta el commit; si otro nodo la está confirmando, se salta
+            if (pedidoRepository.reclamarPendiente(pedidoId).isEmpty()) return false;
+        } else {
+            asegurarCola(bodegaId);
+            PedidoEnCola enCola = gestorColas.quitar(bodegaId, pedidoId);
+            if (enCola == null) return false;
+            TransaccionUtils.siSeRevierte(() -> gestorColas.encolar(bodegaId, enCola));
+        }
+
+        Pedido pedido = pedidoRepository.findConRelacionesById(pedidoId).orElse(null);
+        if (pedido == null || pedido.getEstado() != EstadoPedido.PENDIENTE) return false;
+
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        pedidoRepository.save(pedido);
+        publicarEvento(PedidoColaEvento.EXPIRADO, pedido);
+
+        if (pedido.getUsuario() != null) {
+            notificacionService.notificar(
+                pedido.getUsuario().getId(),
+                "Tu pedido #" + pedido.getCodigoPedido() + " se canceló porque la bodega no lo atendió a tiempo",
+                "PEDIDO",
+                "/cliente/mis-pedidos"
+            );
+        }
+        return true;
+    }
+
+    private boolean colaEnBd() {
+        return "bd".equalsIgnoreCase(modoCola);
+    }
+
+    // Orden de atención según la política configurada en BodegaConfig (FIFO por defecto)
+    private Comparator<PedidoEnCola> ordenDe(Long bodegaId) {
+        return bodegaConfigRepository.findByBodegaId(bodegaId)
+                .map(c -> GestorColasPedidos.ordenPara(
+                        c.getPoliticaCola(), c.getMinutosObjetivoDelivery(), c.getMinutosObjetivoRecojo()))
+                .orElse(GestorColasPedidos.ORDEN_LLEGADA);
+    }
+
+    // Modo "bd": pendientes de la bodega en el orden de su política
+    private List<Pedido> pendientesEnOrden(Long bodegaId) {
+        List<Pedido> pendientes = new ArrayList<>(
+                pedidoRepository.findConRelacionesByBodegaIdAndEstado(bodegaId, EstadoPedido.PENDIENTE));
+        Comparator<PedidoEnCola> orden = ordenDe(bodegaId);
+        if (orden != GestorColasPedidos.ORDEN_LLEGADA) {
+            Map<Long, PedidoEnCola> resumen = pendientes.stream()
+                    .collect(Collectors.toMap(Pedido::getId, PedidoEnCola::de));
+            pendientes.sort((a, b) -> orden.compare(resumen.get(a.getId()), resumen.get(b.getId())));
+        }
+        return pendientes;
+    }
+
+    // Modo "bd": FIFO se reclama directo en SQL; con PRIORIDAD se prueba cada candidato en orden
+    private Optional<Pedido> reclamarSiguienteEnBd(Long bodegaId) {
+        if (ordenDe(bodegaId) == GestorColasPedidos.ORDEN_LLEGADA) {
+            return pedidoRepository.reclamarSiguientePendiente(bodegaId);
+        }
+        for (Pedido candidato : pendientesEnOrden(bodegaId)) {
+            Optional<Pedido> reclamado = pedidoRepository.reclamarPendiente(candidato.getId());
+            if (reclamado.isPresent()) {
+                return reclamado;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Hidrata la cola de la bodega desde la BD si todavía no se cargó
+    private void asegurarCola(Long bodegaId) {
+        if (gestorColas.estaHidratada(bodegaId)) return;
+        gestorColas.configurarOrden(bodegaId, ordenDe(bodegaId));
+        gestorColas.hidratar(bodegaId, () ->
+                pedidoRepository.findConRelacionesByBodegaIdAndEstado(bodegaId, EstadoPedido.PENDIENTE)
+                        .stream()
+                        .map(PedidoEnCola::de)
+                        .toList());
+    }
+
+    // En modo "bd" la fuente de verdad es la tabla; la cola en memoria no se usa.
+    // En memoria entra tras el commit, como el aviso SSE: un rollback no deja pedidos fantasma
+    private void encolar(Long bodegaId, Pedido pedido) {
+        if (!colaEnBd()) {
+            PedidoEnCola enCola = PedidoEnCola.de(pedido);
+            TransaccionUtils.despuesDelCommit(() -> gestorColas.encolar(bodegaId, enCola));
+        }
+        publicarEvento(PedidoColaEvento.ENCOLADO, pedido);
+    }
+
+    // Lo reparte PedidoEventosSse a las pantallas abiertas de la bodega (tras el commit)
+    private void publicarEvento(String tipo, Pedido pedido) {
+        publisher.publishEvent(new PedidoColaEvento(
+                pedido.getBodega().getId(), tipo, pedido.getId(), pedido.getCodigoPedido(), pedido.getTotal()));
+    }
+
+    // Solo cambia el estado y deja la fila en la outbox (mismo commit); la venta y el
+    // descuento de stock los hace ProcesadorPedidoOutbox fuera de la petición del bodeguero
     private void confirmarPedidoLogica(Pedido pedido) {
         pedido.setEstado(EstadoPedido.EN_PREPARACION);
-        
+        pedidoRepository.save(pedido);
+
+        if (!outboxRepository.existsByPedidoId(pedido.getId())) {
+            PedidoOutbox outbox = new PedidoOutbox();
+            outbox.setPedidoId(pedido.getId());
+            outbox.setEstado(PedidoOutbox.PENDIENTE);
+            outbox.setIntentos(0);
+            outbox.setProximoIntento(OffsetDateTime.now());
+            outboxRepository.save(outbox);
+        }
+        publicarEvento(PedidoColaEvento.CONFIRMADO, pedido);
+    }
+
+    /**
+     * Convierte un pedido confirmado en Venta. Idempotente: si el pedido ya tiene
+     * venta no hace nada, así un reintento nunca descuenta stock dos veces.
+     * Lo llama ProcesadorPedidoOutbox dentro de su transacción.
+     */
+    @Transactional
+    public void convertirEnVenta(Long pedidoId) {
+        Pedido pedido = pedidoRepository.findConRelacionesById(pedidoId)
+                .orElseThrow(() -> new NotFoundException("Pedido no encontrado"));
+        if (pedido.getVenta() != null || pedido.getEstado() == EstadoPedido.CANCELADO) {
+            return;
+        }
+
+        Long metodoPagoId;
+        if (pedido.getMetodoPago() != null) {
+            metodoPagoId = pedido.getMetodoPago().getId();
+        } else {
+            metodoPagoId = metodoPagoPorDefecto(pedido.getBodega().getId());
+        }
+        Long ventaId = ventaService.create(ventaDesdePedido(pedido, metodoPagoId));
+
+        pedido.setVenta(ventaRepository.getReferenceById(ventaId));
+        pedidoRepository.save(pedido);
+    }
+
+    private Long metodoPagoPorDefecto(Long bodegaId) {
+        return bodegaMetodoPagoRepository.findByBodegaId(bodegaId)
+                .stream().findFirst()
+                .orElseThrow(() -> new NotFoundException("Sin métodos de pago configurados"))
+                .getId();
+    }
+
+    private VentaDTO ventaDesdePedido(Pedido pedido, Long metodoPagoId) {
         VentaDTO ventaDTO = new VentaDTO();
         ventaDTO.setBodegaId(pedido.getBodega().getId());
         ventaDTO.setClienteNombre(pedido.getUsuario().getNombre() + " (Web)");
@@ -348,14 +751,7 @@ public class PedidoService {
         // ✅ CORRECCIÓN: Ahora VentaDTO tiene los métodos necesarios
         if (pedido.getLatitudEntrega() != null) ventaDTO.setLatitudEntrega(pedido.getLatitudEntrega());
         if (pedido.getLongitudEntrega() != null) ventaDTO.setLongitudEntrega(pedido.getLongitudEntrega());
-        
-        if (pedido.getMetodoPago() != null) {
-            ventaDTO.setBodegaMetodoPagoId(pedido.getMetodoPago().getId());
-        } else {
-            var metodoPago = bodegaMetodoPagoRepository.findByBodegaId(pedido.getBodega().getId())
-                    .stream().findFirst().orElseThrow(() -> new NotFoundException("Sin métodos de pago configurados"));
-            ventaDTO.setBodegaMetodoPagoId(metodoPago.getId());
-        }
+        ventaDTO.setBodegaMetodoPagoId(metodoPagoId);
 
         List<DetalleVentaDTO> productosVenta = new ArrayList<>();
         for(DetallePedido dp : pedido.getDetalles()) {
@@ -368,9 +764,7 @@ public class PedidoService {
         }
         
         ventaDTO.setDetalles(productosVenta);
-        ventaService.create(ventaDTO); 
-        
-        pedidoRepository.save(pedido);
+        return ventaDTO;
     }
 
     // ==========================================
@@ -390,7 +784,7 @@ public class PedidoService {
         pedido.setUsuario(usuario);
         pedido.setDireccionEntrega(dto.getDireccionEntrega());
         pedido.setEstado(EstadoPedido.PENDIENTE);
-        pedido.setCodigoPedido("MAN-" + System.currentTimeMillis());
+        pedido.setCodigoPedido(generadorCodigo.generar("MAN"));
         pedido.setFechaPedido(java.time.LocalTime.now());
 
         BigDecimal total = BigDecimal.ZERO;
@@ -414,7 +808,7 @@ public class PedidoService {
         
         pedido.setTotal(total);
         Pedido guardado = pedidoRepository.save(pedido);
-        gestorColas.encolar(bodega.getId(), guardado);
+        encolar(bodega.getId(), guardado);
     }
     public List<PedidoDTO> findAllByUsuario(Long usuarioId) {
         return pedidoRepository.findByUsuarioIdOrderByDateCreatedDesc(usuarioId)
@@ -0,0 +1,233 @@
+package io.bootify.my_tiendita.pedido;
+
+import io.bootify.my_tiendita.events.PedidoColaEvento;
+import io.bootify.my_tiendita.notificacion.NotificacionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Convierte en Venta los pedidos confirmados que quedaron en la outbox.
+ *
+ * Cada fila se procesa en un hilo virtual y en su propia transacción: primero se
+ * reclama con SKIP LOCKED (otro hilo u otra instancia no la toma a la vez) y luego
+ * PedidoService.convertirEnVenta, que es idempotente. Si falla, se reintenta con
+ * espera exponencial hasta agotar los intentos y entonces se avisa a la bodega.
+ * Tras cada confirmación se procesa enseguida; el sondeo periódico recoge
+ * reintentos y lo que haya quedado de un reinicio.
+ */
+@Service
+public class ProcesadorPedidoOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcesadorPedidoOutbox.class);
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(5);
+
+    private final PedidoOutboxRepository outboxRepository;
+    private final PedidoRepository pedidoRepository;
+    private final PedidoService pedidoService;
+    private final NotificacionService notificacionService;
+    private final TransactionTemplate transaccion;
+
+    // Conversiones simultáneas: cada una ocupa una conexión de BD
+    @Value("${pedidos.outbox.hilos:4}")
+    private int hilos;
+
+    @Value("${pedidos.outbox.lote:50}")
+    private int lote;
+
+    @Value("${pedidos.outbox.max-intentos:6}")
+    private int maxIntentos;
+
+    @Value("${pedidos.outbox.espera-base-segundos:2}")
+    private long esperaBaseSegundos;
+
+    private final ExecutorService hilosVirtuales = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore permisos;
+    // Filas ya enviadas a un hilo de esta instancia (evita enviarlas dos veces)
+    private final Set<Long> enCurso = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder procesados = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final AtomicLong ultimoRetrasoMs = new AtomicLong();
+
+    public ProcesadorPedidoOutbox(PedidoOutboxRepository outboxRepository,
+                                  PedidoRepository pedidoRepository,
+                                  PedidoService pedidoService,
+                                  NotificacionService notificacionService,
+                                  PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoService = pedidoService;
+        this.notificacionService = notificacionService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        permisos = new Semaphore(Math.max(1, hilos));
+    }
+
+    /**
+     * Recién confirmado el pedido (después del commit) se procesa su fila sin esperar al sondeo.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void alConfirmar(final PedidoColaEvento evento) {
+        if (!PedidoColaEvento.CONFIRMADO.equals(evento.getTipo())) return;
+        hilosVirtuales.submit(() -> outboxRepository.findPendienteIdByPedidoId(evento.getPedidoId())
+                .ifPresent(this::enviar));
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.outbox.intervalo-ms:2000}")
+    public void sondear() {
+        try {
+            List<Long> listos = outboxRepository.findIdsListos(OffsetDateTime.now(), PageRequest.of(0, lote));
+            listos.forEach(this::enviar);
+        } catch (Exception e) {
+            log.error("Error al sondear outbox de pedidos", e);
+        }
+    }
+
+    /**
+     * Estado del pipeline: filas pendientes, retraso de la más antigua y del último procesado.
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        OffsetDateTime masAntiguo = outboxRepository.findPendienteMasAntiguo();
+        estado.put("pendientes", outboxRepository.countByEstado(PedidoOutbox.PENDIENTE));
+        estado.put("fallidos", outboxRepository.countByEstado(PedidoOutbox.FALLIDO));
+        estado.put("retrasoPendienteMasAntiguoMs", masAntiguo == null ? 0
+                : Duration.between(masAntiguo, OffsetDateTime.now()).toMillis());
+        estado.put("ultimoRetrasoProcesadoMs", ultimoRetrasoMs.get());
+        estado.put("procesados", procesados.sum());
+        estado.put("reintentos", reintentos.sum());
+        estado.put("fallidosDesdeArranque", fallidos.sum());
+        estado.put("enCurso", enCurso.size());
+        return estado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        hilosVirtuales.shutdown();
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private void enviar(Long outboxId) {
+        if (!enCurso.add(outboxId)) return;
+        try {
+            hilosVirtuales.submit(() -> {
+                try {
+                    permisos.acquire();
+                    try {
+                        procesar(outboxId);
+                    } finally {
+                        permisos.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    enCurso.remove(outboxId);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor cerrado (apagado de la app): el sondeo la tomará en el próximo arranque
+            enCurso.remove(outboxId);
+        }
+    }
+
+    private void procesar(Long outboxId) {
+        try {
+            transaccion.executeWithoutResult(status -> outboxRepository.reclamar(outboxId).ifPresent(outbox -> {
+                pedidoService.convertirEnVenta(outbox.getPedidoId());
+                OffsetDateTime ahora = OffsetDateTime.now();
+                outbox.setEstado(PedidoOutbox.PROCESADO);
+                outbox.setIntentos(outbox.getIntentos() + 1);
+                outbox.setProcesadoEn(ahora);
+                outbox.setUltimoError(null);
+                outboxRepository.save(outbox);
+                procesados.increment();
+                ultimoRetrasoMs.set(Duration.between(outbox.getDateCreated(), ahora).toMillis());
+            }));
+        } catch (Exception e) {
+            registrarFallo(outboxId, e);
+        }
+    }
+
+    // La transacción de la conversión ya se revirtió; el fallo se anota en una nueva
+    private void registrarFallo(Long outboxId, Exception error) {
+        try {
+            transaccion.executeWithoutResult(status -> outboxRepository.reclamar(outboxId).ifPresent(outbox -> {
+                int intentos = outbox.getIntentos() + 1;
+                outbox.setIntentos(intentos);
+                outbox.setUltimoError(recortar(error.getMessage()));
+
+                if (intentos >= maxIntentos) {
+                    outbox.setEstado(PedidoOutbox.FALLIDO);
+                    fallidos.increment();
+                    log.error("Outbox #{} (pedido {}) marcada FALLIDO tras {} intentos",
+                            outboxId, outbox.getPedidoId(), intentos, error);
+                    avisarBodega(outbox.getPedidoId(), error.getMessage());
+                } else {
+                    Duration espera = espera(intentos);
+                    outbox.setProximoIntento(OffsetDateTime.now().plus(espera));
+                    reintentos.increment();
+                    log.warn("Outbox #{} (pedido {}) falló en el intento {}; se reintenta en {}",
+                            outboxId, outbox.getPedidoId(), intentos, espera, error);
+                }
+                outboxRepository.save(outbox);
+            }));
+        } catch (Exception e) {
+            log.error("Error al registrar fallo de outbox #{}", outboxId, e);
+        }
+    }
+
+    // 2s, 4s, 8s... hasta ESPERA_MAXIMA
+    private Duration espera(int intentos) {
+        long segundos = esperaBaseSegundos << Math.min(intentos - 1, 20);
+        Duration espera = Duration.ofSeconds(segundos);
+        return espera.compareTo(ESPERA_MAXIMA) > 0 ? ESPERA_MAXIMA : espera;
+    }
+
+    private void avisarBodega(Long pedidoId, String motivo) {
+        pedidoRepository.findConRelacionesById(pedidoId).ifPresent(pedido -> {
+            if (pedido.getBodega().getUsuario() != null) {
+                notificacionService.notificar(
+                    pedido.getBodega().getUsuario().getId(),
+                    "No se pudo registrar la venta del pedido #" + pedido.getCodigoPedido() + ": " + motivo,
+                    "PEDIDO",
+                    "/bodeguero/pedidos"
+                );
+            }
+        });
+    }
+
+    private static String recortar(String mensaje) {
+        if (mensaje == null) return null;
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+}
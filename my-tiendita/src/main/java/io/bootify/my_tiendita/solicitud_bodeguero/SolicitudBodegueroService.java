@@ -2,6 +2,7 @@ package io.bootify.my_tiendita.solicitud_bodeguero;
 
 import io.bootify.my_tiendita.bodega.Bodega;
 import io.bootify.my_tiendita.bodega.BodegaRepository;
+import io.bootify.my_tiendita.bodega.BodegaService;
 import io.bootify.my_tiendita.notificacion.NotificacionService;
 import io.bootify.my_tiendita.usuario.Rol;
 import io.bootify.my_tiendita.usuario.RolRepository;
@@ -27,19 +28,22 @@ public class SolicitudBodegueroService {
     private final RolRepository rolRepository;
     private final PasswordEncoder passwordEncoder;
     private final NotificacionService notificacionService;
+    private final BodegaService bodegaService;
 
     public SolicitudBodegueroService(final SolicitudBodegueroRepository solicitudBodegueroRepository,
                                      final UsuarioRepository usuarioRepository,
                                      final BodegaRepository bodegaRepository,
                                      final RolRepository rolRepository,
                                      final PasswordEncoder passwordEncoder,
-                                     final NotificacionService notificacionService) {
+                                     final NotificacionService notificacionService,
+                                     final BodegaService bodegaService) {
         this.solicitudBodegueroRepository = solicitudBodegueroRepository;
         this.usuarioRepository = usuarioRepository;
         this.bodegaRepository = bodegaRepository;
         this.rolRepository = rolRepository;
         this.passwordEncoder = passwordEncoder;
         this.notificacionService = notificacionService;
+        this.bodegaService = bodegaService;
     }
 
     public List<SolicitudBodegueroDTO> findAll() {
@@ -107,6 +111,7 @@ public class SolicitudBodegueroService {
         
         // Guardar Bodega
         bodegaRepository.save(nuevaBodega);
+        bodegaService.sincronizarIndiceEspacial(nuevaBodega);
 
         // 3. Actualizar Solicitud
         solicitud.setEstado("APROBADA");
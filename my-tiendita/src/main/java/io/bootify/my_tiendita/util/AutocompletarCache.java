@@ -0,0 +1,176 @@
+package io.bootify.my_tiendita.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de sugerencias de Places organizada como trie de prefijos.
+ * Mientras el usuario escribe "av b", "av ba", "av bal"... cada prefijo queda
+ * en un nodo. Si un prefijo más corto ya trajo TODAS sus sugerencias (menos del
+ * máximo que devuelve Google), una consulta más larga se responde filtrándolas.
+ * Además, consultas idénticas simultáneas comparten una sola petición en curso.
+ */
+@Component
+public class AutocompletarCache {
+
+    @Value("${google.maps.autocomplete.max-prefijos:2000}")
+    private int maxPrefijos;
+
+    @Value("${google.maps.autocomplete.ttl-minutos:60}")
+    private long ttlMinutos;
+
+    private final Nodo raiz = new Nodo();
+    // Prefijos con resultado, en orden de inserción (el más antiguo se descarta primero)
+    private final LinkedHashMap<String, Nodo> conResultado = new LinkedHashMap<>();
+
+    // Mapa: prefijo -> petición a Google en curso
+    private final Map<String, CompletableFuture<List<Map<String, Object>>>> enCurso = new ConcurrentHashMap<>();
+
+    /**
+     * Busca sugerencias para el prefijo: exactas si ya se consultó, o filtradas
+     * desde el prefijo más largo ya consultado cuyo resultado estaba completo.
+     * Devuelve null si hay que ir a Google.
+     */
+    public synchronized List<Map<String, Object>> buscar(String prefijo) {
+        long ahora = System.currentTimeMillis();
+        Nodo nodo = raiz;
+        Nodo ancestroCompleto = null;
+        for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+            if (nodo.vigente(ahora) && nodo.completo) {
+                ancestroCompleto = nodo;
+            }
+            nodo = nodo.hijos.get(prefijo.charAt(i));
+        }
+
+        if (nodo != null && nodo.vigente(ahora)) {
+            return nodo.predicciones;
+        }
+        if (ancestroCompleto == null) {
+            return null;
+        }
+
+        List<Map<String, Object>> filtradas = filtrar(ancestroCompleto.predicciones, prefijo);
+        // Sin coincidencias locales no se puede afirmar que Google tampoco las tenga
+        return filtradas.isEmpty() ? null : filtradas;
+    }
+
+    /**
+     * Guarda las sugerencias de un prefijo. "completo" indica que Google devolvió
+     * menos sugerencias que el máximo, es decir, no hay más coincidencias.
+     */
+    public synchronized void guardar(String prefijo, List<Map<String, Object>> predicciones, boolean completo) {
+        Nodo nodo = raiz;
+        for (int i = 0; i < prefijo.length(); i++) {
+            nodo = nodo.hijos.computeIfAbsent(prefijo.charAt(i), c -> new Nodo());
+        }
+        nodo.predicciones = List.copyOf(predicciones);
+        nodo.completo = completo;
+        nodo.venceEn = System.currentTimeMillis() + ttlMinutos * 60_000L;
+
+        conResultado.remove(prefijo);
+        conResultado.put(prefijo, nodo);
+        if (conResultado.size() > maxPrefijos) {
+            Iterator<String> it = conResultado.keySet().iterator();
+            String masAntiguo = it.next();
+            it.remove();
+            quitar(masAntiguo);
+        }
+    }
+
+    /**
+     * Ejecuta la consulta una sola vez por prefijo aunque lleguen varias a la vez:
+     * la primera petición hace la llamada y las demás esperan su resultado.
+     */
+    public List<Map<String, Object>> unicaEnCurso(String prefijo, Supplier<List<Map<String, Object>>> consulta) {
+        CompletableFuture<List<Map<String, Object>>> nueva = new CompletableFuture<>();
+        CompletableFuture<List<Map<String, Object>>> existente = enCurso.putIfAbsent(prefijo, nueva);
+        if (existente != null) {
+            return existente.join();
+        }
+        try {
+            List<Map<String, Object>> resultado = consulta.get();
+            nueva.complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            nueva.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(prefijo, nueva);
+        }
+    }
+
+    public static String normalizar(String texto) {
+        return texto.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // ============================================================
+    // HELPERS
+    // ============================================================
+
+    // Conserva las sugerencias cuyo texto contiene todas las palabras del prefijo
+    private static List<Map<String, Object>> filtrar(List<Map<String, Object>> predicciones, String prefijo) {
+        String[] palabras = sinTildes(prefijo).split(" ");
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Map<String, Object> prediccion : predicciones) {
+            Object nombre = prediccion.get("display_name");
+            if (nombre == null) continue;
+            String texto = sinTildes(nombre.toString().toLowerCase(Locale.ROOT));
+            boolean coincide = true;
+            for (String palabra : palabras) {
+                if (!texto.contains(palabra)) {
+                    coincide = false;
+                    break;
+                }
+            }
+            if (coincide) {
+                resultado.add(prediccion);
+            }
+        }
+        return resultado;
+    }
+
+    private static String sinTildes(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    // Limpia el resultado del prefijo y poda los nodos que quedan vacíos
+    private boolean quitar(Nodo nodo, String prefijo, int i) {
+        if (i == prefijo.length()) {
+            nodo.predicciones = null;
+            nodo.completo = false;
+        } else {
+            Nodo hijo = nodo.hijos.get(prefijo.charAt(i));
+            if (hijo != null && quitar(hijo, prefijo, i + 1)) {
+                nodo.hijos.remove(prefijo.charAt(i));
+            }
+        }
+        return nodo.predicciones == null && nodo.hijos.isEmpty();
+    }
+
+    private void quitar(String prefijo) {
+        quitar(raiz, prefijo, 0);
+    }
+
+    private static final class Nodo {
+        private final Map<Character, Nodo> hijos = new HashMap<>();
+        private List<Map<String, Object>> predicciones;
+        private boolean completo;
+        private long venceEn;
+
+        boolean vigente(long ahora) {
+            return predicciones != null && venceEn >= ahora;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.bootify.my_tiendita.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Nomenclátor local de distritos (sin llamar a Google).
+ * Se carga desde un recurso JSON empaquetado con la aplicación. Cada distrito
+ * puede traer su polígono (lista de [lat, lng]) o solo su centroide con un radio
+ * aproximado: primero se prueba punto-en-polígono y, si no hay polígono que
+ * contenga el punto, se usa el centroide más cercano dentro de su radio.
+ */
+@Component
+public class GazetteerDistritos {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerDistritos.class);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${google.maps.gazetteer:geo/distritos.json}")
+    private String recurso;
+
+    private Distrito[] distritos = new Distrito[0];
+
+    public GazetteerDistritos(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void cargar() {
+        try (InputStream in = new ClassPathResource(recurso).getInputStream()) {
+            List<Distrito> lista = objectMapper.readValue(in, new TypeReference<List<Distrito>>() {});
+            distritos = lista.stream().map(Distrito::conCaja).toArray(Distrito[]::new);
+            log.info("✅ Nomenclátor de distritos cargado ({} distritos).", distritos.length);
+        } catch (Exception e) {
+            // Sin nomenclátor ninguna coordenada resuelve distrito localmente
+            log.error("Error al cargar nomenclátor de distritos desde {}", recurso, e);
+        }
+    }
+
+    /**
+     * Devuelve el distrito que contiene la coordenada, o null si está fuera de la zona cubierta.
+     */
+    public String resolver(double lat, double lon) {
+        for (Distrito d : distritos) {
+            if (d.contiene(lat, lon)) {
+                return d.nombre();
+            }
+        }
+
+        GeoUtils.PuntoOrigen punto = new GeoUtils.PuntoOrigen(lat, lon);
+        String masCercano = null;
+        double mejorKm = Double.MAX_VALUE;
+        for (Distrito d : distritos) {
+            if (d.latitud() == null || d.longitud() == null || d.radioKm() == null) continue;
+            if (punto.fueraDeRadioAprox(d.latitud(), d.longitud(), d.radioKm())) continue;
+            double km = punto.distanciaKm(d.latitud(), d.longitud());
+            if (km <= d.radioKm() && km < mejorKm) {
+                mejorKm = km;
+                masCercano = d.nombre();
+            }
+        }
+        return masCercano;
+    }
+
+    /**
+     * Distrito del recurso JSON. "poligono" es opcional; la caja se calcula al cargar.
+     */
+    public record Distrito(String nombre, Double latitud, Double longitud, Double radioKm,
+                           double[][] poligono, double[] caja) {
+
+        Distrito conCaja() {
+            if (poligono == null || poligono.length < 3) {
+                return new Distrito(nombre, latitud, longitud, radioKm, null, null);
+            }
+            double latMin = Double.MAX_VALUE, latMax = -Double.MAX_VALUE;
+            double lngMin = Double.MAX_VALUE, lngMax = -Double.MAX_VALUE;
+            for (double[] v : poligono) {
+                latMin = Math.min(latMin, v[0]);
+                latMax = Math.max(latMax, v[0]);
+                lngMin = Math.min(lngMin, v[1]);
+                lngMax = Math.max(lngMax, v[1]);
+            }
+            return new Distrito(nombre, latitud, longitud, radioKm, poligono,
+                    new double[]{latMin, latMax, lngMin, lngMax});
+        }
+
+        // Ray casting, descartando primero por caja envolvente
+        boolean contiene(double lat, double lon) {
+            if (caja == null) return false;
+            if (lat < caja[0] || lat > caja[1] || lon < caja[2] || lon > caja[3]) return false;
+            boolean dentro = false;
+            for (int i = 0, j = poligono.length - 1; i < poligono.length; j = i++) {
+                double latI = poligono[i][0], lngI = poligono[i][1];
+                double latJ = poligono[j][0], lngJ = poligono[j][1];
+                if ((latI > lat) != (latJ > lat)
+                        && lon < (lngJ - lngI) * (lat - latI) / (latJ - latI) + lngI) {
+                    dentro = !dentro;
+                }
+            }
+            return dentro;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.bootify.my_tiendita.util;
+
+import io.bootify.my_tiendita.pedido.PedidoRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Códigos de pedido únicos sin consultar la BD (estilo Snowflake).
+ *
+ * Cada ID de 63 bits junta: milisegundos desde 2025-01-01 (41 bits, ~69 años),
+ * el nodo de la instancia (10 bits, 0-1023) y una secuencia dentro del mismo
+ * milisegundo (12 bits, 4096 por ms). Se muestra en base 32 de Crockford, sin
+ * letras confundibles (I, L, O, U), p. ej. "PED-0A3F9KX2M7QR4".
+ *
+ * Sin candados: tiempo y secuencia viven en un solo AtomicLong que se avanza con
+ * CAS. Si se agota la secuencia o el reloj retrocede, se sigue con el milisegundo
+ * siguiente al último usado, así los códigos nunca se repiten en esta instancia.
+ * Al arrancar se parte del último pedido guardado, por si el reloj retrocedió
+ * durante el reinicio.
+ *
+ * Entre instancias la unicidad depende de que cada una tenga un nodo distinto, por
+ * eso con la cola en BD (varias instancias) pedidos.codigo.nodo es obligatorio.
+ * Con una sola instancia puede omitirse y se deriva del nombre del host.
+ */
+@Component
+public class GeneradorCodigoPedido {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorCodigoPedido.class);
+
+    private static final long EPOCA = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int BITS_NODO = 10;
+    private static final int BITS_SECUENCIA = 12;
+    private static final long MAX_NODO = (1L << BITS_NODO) - 1;
+    private static final long MAX_SECUENCIA = (1L << BITS_SECUENCIA) - 1;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LARGO = 13; // 63 bits / 5 bits por carácter
+
+    private final PedidoRepository pedidoRepository;
+    private final long nodo;
+
+    // (milisegundo << BITS_SECUENCIA) | secuencia del último ID entregado
+    private final AtomicLong ultimo = new AtomicLong();
+
+    /**
+     * @param nodoConfigurado pedidos.codigo.nodo; -1 = derivarlo del host (solo con una instancia)
+     * @param modoCola pedidos.cola.modo; "bd" indica que puede haber varias instancias
+     */
+    public GeneradorCodigoPedido(@Value("${pedidos.codigo.nodo:-1}") final long nodoConfigurado,
+                                 @Value("${pedidos.cola.modo:memoria}") final String modoCola,
+                                 final PedidoRepository pedidoRepository) {
+        this.pedidoRepository = pedidoRepository;
+        if (nodoConfigurado >= 0) {
+            if (nodoConfigurado > MAX_NODO) {
+                throw new IllegalArgumentException("pedidos.codigo.nodo debe estar entre 0 y " + MAX_NODO);
+            }
+            this.nodo = nodoConfigurado;
+        } else if ("bd".equalsIgnoreCase(modoCola)) {
+            // Dos hosts pueden dar el mismo hash: con varias instancias el nodo debe ser explícito
+            throw new IllegalStateException(
+                    "Con pedidos.cola.modo=bd hay que fijar pedidos.codigo.nodo (0-" + MAX_NODO + ") distinto por instancia");
+        } else {
+            this.nodo = nodoDesdeHost();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        OffsetDateTime ultimoPedido = pedidoRepository.findUltimaFechaCreacion();
+        if (ultimoPedido != null) {
+            continuarDesde(ultimoPedido.toInstant().toEpochMilli());
+        }
+        log.info("Generador de códigos de pedido en el nodo {}.", nodo);
+    }
+
+    /**
+     * Código legible con prefijo, p. ej. generar("PED").
+     */
+    public String generar(String prefijo) {
+        return prefijo + "-" + aBase32(siguienteId());
+    }
+
+    public long siguienteId() {
+        long actual;
+        long siguiente;
+        do {
+            actual = ultimo.get();
+            long ms = actual >>> BITS_SECUENCIA;
+            long ahora = System.currentTimeMillis() - EPOCA;
+            if (ahora > ms) {
+                siguiente = ahora << BITS_SECUENCIA;
+            } else if ((actual & MAX_SECUENCIA) < MAX_SECUENCIA) {
+                siguiente = actual + 1;
+            } else {
+                siguiente = (ms + 1) << BITS_SECUENCIA;
+            }
+        } while (!ultimo.compareAndSet(actual, siguiente));
+
+        long ms = siguiente >>> BITS_SECUENCIA;
+        long secuencia = siguiente & MAX_SECUENCIA;
+        return (ms << (BITS_NODO + BITS_SECUENCIA)) | (nodo << BITS_SECUENCIA) | secuencia;
+    }
+
+    public long getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Los IDs siguientes usarán un milisegundo posterior a "epochMs" aunque el reloj
+     * esté atrasado respecto de él.
+     */
+    void continuarDesde(long epochMs) {
+        long minimo = ((epochMs - EPOCA) << BITS_SECUENCIA) | MAX_SECUENCIA;
+        ultimo.accumulateAndGet(minimo, Math::max);
+    }
+
+    /**
+     * Milisegundo (epoch) en que se generó el ID.
+     */
+    static long milisegundoDe(long id) {
+        return (id >>> (BITS_NODO + BITS_SECUENCIA)) + EPOCA;
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+
+    private static String aBase32(long id) {
+        char[] salida = new char[LARGO];
+        for (int i = LARGO - 1; i >= 0; i--) {
+            salida[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(salida);
+    }
+
+    private static long nodoDesdeHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODO;
+        } catch (Exception e) {
+            log.warn("No se pudo leer el host para el nodo de códigos de pedido", e);
+            return ProcessHandle.current().pid() & MAX_NODO;
+        }
+    }
+}
@@ -2,15 +2,128 @@ package io.bootify.my_tiendita.util;
 
 public class GeoUtils {
     private static final int RADIO_TIERRA_KM = 6371;
+    private static final double KM_POR_GRADO = 111.32;
 
     public static double calcularDistanciaKm(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distancia = RADIO_TIERRA_KM * c;
+        double distancia = haversineKm(Math.toRadians(lat1), Math.cos(Math.toRadians(lat1)), lon1, lat2, lon2);
         return Math.round(distancia * 100.0) / 100.0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Distancia Haversine sin redondeo, en kilómetros.
+     */
+    public static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        return haversineKm(Math.toRadians(lat1), Math.cos(Math.toRadians(lat1)), lon1, lat2, lon2);
+    }
+
+    // Núcleo de Haversine con la latitud del origen ya en radianes y su coseno precalculado
+    private static double haversineKm(double lat1Rad, double cosLat1, double lon1, double lat2, double lon2) {
+        double lat2Rad = Math.toRadians(lat2);
+        double sinDLat = Math.sin((lat2Rad - lat1Rad) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinDLat * sinDLat + cosLat1 * Math.cos(lat2Rad) * sinDLon * sinDLon;
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return RADIO_TIERRA_KM * c;
+    }
+
+    /**
+     * Caja envolvente (lat/lng) del círculo de radio dado.
+     *
+     * @return {latMin, latMax, lngMin, lngMax}
+     */
+    public static double[] cajaEnvolvente(double lat, double lon, double radioKm) {
+        double deltaLat = radioKm / KM_POR_GRADO;
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+        double deltaLon = radioKm / (KM_POR_GRADO * cosLat);
+        return new double[] { lat - deltaLat, lat + deltaLat, lon - deltaLon, lon + deltaLon };
+    }
+
+    /**
+     * WKT de un punto en orden longitud-latitud.
+     */
+    public static String puntoWkt(double lat, double lon) {
+        return "POINT(" + lon + " " + lat + ")";
+    }
+
+    /**
+     * WKT del polígono que forma la caja envolvente del círculo, en orden longitud-latitud.
+     */
+    public static String cajaWkt(double lat, double lon, double radioKm) {
+        double[] caja = cajaEnvolvente(lat, lon, radioKm);
+        // Se recorta a rangos válidos para SRID 4326
+        double latMin = Math.max(caja[0], -90), latMax = Math.min(caja[1], 90);
+        double lonMin = Math.max(caja[2], -180), lonMax = Math.min(caja[3], 180);
+        return "POLYGON((" +
+                lonMin + " " + latMin + ", " +
+                lonMax + " " + latMin + ", " +
+                lonMax + " " + latMax + ", " +
+                lonMin + " " + latMax + ", " +
+                lonMin + " " + latMin + "))";
+    }
+
+    /**
+     * Punto de consulta con sus valores trigonométricos precalculados.
+     * Se crea una vez por búsqueda y se reutiliza contra todos los candidatos,
+     * sin reservar memoria por cada distancia calculada.
+     */
+    public static final class PuntoOrigen {
+
+        // Margen para que la aproximación equirectangular nunca descarte un punto válido
+        private static final double MARGEN_APROX = 1.05;
+
+        private final double lat;
+        private final double lon;
+        private final double latRad;
+        private final double cosLat;
+
+        public PuntoOrigen(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+            this.latRad = Math.toRadians(lat);
+            this.cosLat = Math.cos(latRad);
+        }
+
+        /**
+         * Distancia Haversine exacta (km) desde el origen.
+         */
+        public double distanciaKm(double lat2, double lon2) {
+            return haversineKm(latRad, cosLat, lon, lat2, lon2);
+        }
+
+        /**
+         * Chequeo barato (equirectangular, sin trigonometría por candidato):
+         * true si el punto está con seguridad fuera del radio.
+         */
+        public boolean fueraDeRadioAprox(double lat2, double lon2, double radioKm) {
+            double x = (lon2 - lon) * cosLat;
+            double y = lat2 - lat;
+            double limite = radioKm * MARGEN_APROX / KM_POR_GRADO;
+            return x * x + y * y > limite * limite;
+        }
+
+        /**
+         * Calcula en lote la distancia a los primeros n puntos de los arreglos.
+         * Los puntos descartados por el chequeo aproximado o fuera del radio
+         * quedan con Double.POSITIVE_INFINITY en {@code distancias}.
+         *
+         * @return cantidad de puntos dentro del radio
+         */
+        public int distanciasEnRadio(double[] lats, double[] lons, int n, double radioKm, double[] distancias) {
+            int dentro = 0;
+            for (int i = 0; i < n; i++) {
+                if (fueraDeRadioAprox(lats[i], lons[i], radioKm)) {
+                    distancias[i] = Double.POSITIVE_INFINITY;
+                    continue;
+                }
+                double d = haversineKm(latRad, cosLat, lon, lats[i], lons[i]);
+                if (d <= radioKm) {
+                    distancias[i] = d;
+                    dentro++;
+                } else {
+                    distancias[i] = Double.POSITIVE_INFINITY;
+                }
+            }
+            return dentro;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.bootify.my_tiendita.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de resultados de geocodificación de Google Maps.
+ * - Directa: clave exacta por dirección normalizada.
+ * - Inversa: coordenadas redondeadas a una grilla (≈10 m por defecto), así dos
+ *   clics a pocos metros reutilizan la misma respuesta.
+ * Ambas son LRU con vencimiento (TTL) y pueden guardarse en un archivo local
+ * para sobrevivir reinicios.
+ */
+@Component
+public class GeocodificacionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodificacionCache.class);
+
+    // Metros por grado de latitud (aprox.)
+    private static final double METROS_POR_GRADO = 111_320.0;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${google.maps.cache.max-entradas:5000}")
+    private int maxEntradas;
+
+    @Value("${google.maps.cache.ttl-horas:720}")
+    private long ttlHoras;
+
+    @Value("${google.maps.cache.grilla-metros:10}")
+    private double grillaMetros;
+
+    // Vacío = sin persistencia
+    @Value("${google.maps.cache.archivo:}")
+    private String archivo;
+
+    private LruConVencimiento directa;
+    private LruConVencimiento inversa;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    public GeocodificacionCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        directa = new LruConVencimiento(maxEntradas);
+        inversa = new LruConVencimiento(maxEntradas);
+        cargarArchivo();
+    }
+
+    @PreDestroy
+    public void guardar() {
+        if (archivo == null || archivo.isBlank()) return;
+        try {
+            Map<String, List<Entrada>> contenido = new HashMap<>();
+            contenido.put("directa", directa.vigentes());
+            contenido.put("inversa", inversa.vigentes());
+            objectMapper.writeValue(new File(archivo), contenido);
+        } catch (Exception e) {
+            log.error("Error al guardar caché de geocodificación en {}", archivo, e);
+        }
+    }
+
+    // ============================================================
+    // DIRECTA (Dirección → Coordenadas)
+    // ============================================================
+    public Map<String, Object> obtenerDirecta(String direccion) {
+        return contar(directa.obtener(claveDireccion(direccion)));
+    }
+
+    public void guardarDirecta(String direccion, Map<String, Object> resultado) {
+        directa.poner(claveDireccion(direccion), resultado, vencimiento());
+    }
+
+    // ============================================================
+    // INVERSA (Coordenadas → Dirección)
+    // ============================================================
+    public Map<String, Object> obtenerInversa(double lat, double lon) {
+        return contar(inversa.obtener(claveCoordenadas(lat, lon)));
+    }
+
+    public void guardarInversa(double lat, double lon, Map<String, Object> resultado) {
+        inversa.poner(claveCoordenadas(lat, lon), resultado, vencimiento());
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("aciertos", aciertos.sum());
+        stats.put("fallos", fallos.sum());
+        stats.put("entradasDirecta", directa.tamanio());
+        stats.put("entradasInversa", inversa.tamanio());
+        return stats;
+    }
+
+    // ============================================================
+    // HELPERS
+    // ============================================================
+    private Map<String, Object> contar(Map<String, Object> valor) {
+        if (valor == null) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        // Copia para que el llamador no altere la entrada cacheada
+        return new HashMap<>(valor);
+    }
+
+    private long vencimiento() {
+        return System.currentTimeMillis() + ttlHoras * 3_600_000L;
+    }
+
+    private static String claveDireccion(String direccion) {
+        return direccion.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private String claveCoordenadas(double lat, double lon) {
+        double paso = grillaMetros / METROS_POR_GRADO;
+        return Math.round(lat / paso) + ":" + Math.round(lon / paso);
+    }
+
+    private void cargarArchivo() {
+        if (archivo == null || archivo.isBlank()) return;
+        File file = new File(archivo);
+        if (!file.exists()) return;
+        try {
+            Map<String, List<Entrada>> contenido = objectMapper.readValue(file,
+                    new TypeReference<Map<String, List<Entrada>>>() {});
+            directa.cargar(contenido.get("directa"));
+            inversa.cargar(contenido.get("inversa"));
+            log.info("✅ Caché de geocodificación cargada ({} directas, {} inversas).",
+                    directa.tamanio(), inversa.tamanio());
+        } catch (Exception e) {
+            log.error("Error al cargar caché de geocodificación desde {}", file, e);
+        }
+    }
+
+    /**
+     * Entrada serializable: clave, resultado y momento de vencimiento (epoch ms).
+     */
+    public record Entrada(String clave, Map<String, Object> valor, long venceEn) {}
+
+    /**
+     * LinkedHashMap en orden de acceso: el menos usado se descarta al superar el máximo.
+     */
+    private static final class LruConVencimiento {
+        private final LinkedHashMap<String, Entrada> mapa;
+
+        LruConVencimiento(int maximo) {
+            this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                    return size() > maximo;
+                }
+            };
+        }
+
+        synchronized Map<String, Object> obtener(String clave) {
+            Entrada entrada = mapa.get(clave);
+            if (entrada == null) return null;
+            if (entrada.venceEn() < System.currentTimeMillis()) {
+                mapa.remove(clave);
+                return null;
+            }
+            return entrada.valor();
+        }
+
+        synchronized void poner(String clave, Map<String, Object> valor, long venceEn) {
+            mapa.put(clave, new Entrada(clave, new HashMap<>(valor), venceEn));
+        }
+
+        synchronized void cargar(List<Entrada> entradas) {
+            if (entradas == null) return;
+            long ahora = System.currentTimeMillis();
+            for (Entrada entrada : entradas) {
+                if (entrada.venceEn() >= ahora) {
+                    mapa.put(entrada.clave(), entrada);
+                }
+            }
+        }
+
+        synchronized List<Entrada> vigentes() {
+            long ahora = System.currentTimeMillis();
+            List<Entrada> lista = new ArrayList<>(mapa.size());
+            for (Entrada entrada : mapa.values()) {
+                if (entrada.venceEn() >= ahora) {
+                    lista.add(entrada);
+                }
+            }
+            return lista;
+        }
+
+        synchronized int tamanio() {
+            return mapa.size();
+        }
+    }
+}
@@ -11,9 +11,11 @@ import java.util.Map;
 public class GoogleMapsResource {
 
     private final GoogleMapsService service;
+    private final GeocodificacionCache cache;
 
-    public GoogleMapsResource(GoogleMapsService service) {
+    public GoogleMapsResource(GoogleMapsService service, GeocodificacionCache cache) {
         this.service = service;
+        this.cache = cache;
     }
 
     /**
@@ -49,4 +51,26 @@ public class GoogleMapsResource {
 
         return ResponseEntity.ok(service.geocodificarInverso(lat, lon));
     }
-}
\ No newline at end of file
+
+    /**
+     * DISTRITO - Resolver el distrito de unas coordenadas con el nomenclátor local
+     * GET /api/google-maps/distrito?lat=-6.7714&lon=-79.8409
+     */
+    @GetMapping("/distrito")
+    public ResponseEntity<Map<String, Object>> distrito(
+            @RequestParam("lat") double lat,
+            @RequestParam("lon") double lon) {
+
+        return ResponseEntity.ok(service.distritoLocal(lat, lon));
+    }
+
+    /**
+     * ESTADÍSTICAS DE CACHÉ - Aciertos/fallos de la caché de geocodificación
+     * GET /api/google-maps/cache
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> estadisticasCache() {
+
+        return ResponseEntity.ok(cache.estadisticas());
+    }
+}
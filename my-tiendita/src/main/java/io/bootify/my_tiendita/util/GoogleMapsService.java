@@ -17,15 +17,40 @@ public class GoogleMapsService {
     @Value("${google.maps.api-key}")
     private String apiKey;
 
+    // Contexto agregado a las direcciones para que Google no busque fuera de la región
+    @Value("${google.maps.contexto-direccion:, Lambayeque, Peru}")
+    private String contextoDireccion;
+
     private final RestTemplate restTemplate = new RestTemplate();
+    private final GeocodificacionCache cache;
+    private final AutocompletarCache autocompletarCache;
+    private final GazetteerDistritos gazetteer;
 
     private static final String GEOCODE_URL = "https://maps.googleapis.com/maps/api/geocode/json";
     private static final String PLACES_AUTOCOMPLETE_URL = "https://maps.googleapis.com/maps/api/place/autocomplete/json";
+    // Places devuelve como máximo 5 sugerencias
+    private static final int MAX_SUGERENCIAS = 5;
 
     // ============================================================
     //  AUTOCOMPLETE (Google Places API)
     // ============================================================
     public List<Map<String, Object>> autocompletar(String query) {
+        String prefijo = AutocompletarCache.normalizar(query);
+        if (prefijo.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Map<String, Object>> cacheadas = autocompletarCache.buscar(prefijo);
+        if (cacheadas != null) {
+            return cacheadas;
+        }
+
+        List<Map<String, Object>> sugerencias = autocompletarCache.unicaEnCurso(prefijo, () -> consultarAutocompletar(prefijo));
+        return sugerencias != null ? sugerencias : Collections.emptyList();
+    }
+
+    // Llamada real a Places; devuelve null si falló (para no cachear el error)
+    private List<Map<String, Object>> consultarAutocompletar(String query) {
         try {
             // Coordenadas de Chiclayo para sesgo de resultados
             String location = "-6.7714,-79.8409";
@@ -42,19 +67,24 @@ public class GoogleMapsService {
             ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
             Map<String, Object> body = response.getBody();
 
-            if (body == null || !"OK".equals(body.get("status"))) {
+            if (body != null && "ZERO_RESULTS".equals(body.get("status"))) {
+                autocompletarCache.guardar(query, Collections.emptyList(), true);
                 return Collections.emptyList();
             }
 
+            if (body == null || !"OK".equals(body.get("status"))) {
+                return null;
+            }
+
             List<Map<String, Object>> predictions = (List<Map<String, Object>>) body.get("predictions");
             
             if (predictions == null) {
-                return Collections.emptyList();
+                return null;
             }
 
             // Transformar a formato compatible con el frontend
-            return predictions.stream()
-                    .limit(5)
+            List<Map<String, Object>> sugerencias = predictions.stream()
+                    .limit(MAX_SUGERENCIAS)
                     .map(pred -> {
                         Map<String, Object> item = new HashMap<>();
                         item.put("display_name", pred.get("description"));
@@ -71,9 +101,13 @@ public class GoogleMapsService {
                     })
                     .collect(Collectors.toList());
 
+            // Menos sugerencias que el máximo = no hay más coincidencias para este prefijo
+            autocompletarCache.guardar(query, sugerencias, predictions.size() < MAX_SUGERENCIAS);
+            return sugerencias;
+
         } catch (Exception e) {
             System.err.println("Error en autocompletar: " + e.getMessage());
-            return Collections.emptyList();
+            return null;
         }
     }
 
@@ -81,11 +115,16 @@ public class GoogleMapsService {
     // GEOCODIFICACIÓN (Dirección → Coordenadas)
     // ============================================================
     public Map<String, Object> geocodificar(String direccion) {
+        Map<String, Object> cacheado = cache.obtenerDirecta(direccion);
+        if (cacheado != null) {
+            return cacheado;
+        }
+
         Map<String, Object> result = new HashMap<>();
 
         try {
             // Agregar contexto de Perú
-            String fullAddress = direccion + ", Lambayeque, Peru";
+            String fullAddress = direccion + contextoDireccion;
             
             String url = UriComponentsBuilder.fromHttpUrl(GEOCODE_URL)
                     .queryParam("address", fullAddress)
@@ -120,17 +159,15 @@ public class GoogleMapsService {
             result.put("lon", location.get("lng"));
             result.put("display_name", firstResult.get("formatted_address"));
             
-            // Extraer distrito si está disponible
-            List<Map<String, Object>> addressComponents = 
-                (List<Map<String, Object>>) firstResult.get("address_components");
-            
-            if (addressComponents != null) {
-                String distrito = extraerDistrito(addressComponents);
-                if (distrito != null) {
-                    result.put("distrito", distrito);
-                }
+            // Distrito: primero el nomenclátor local, luego lo que diga Google
+            String distrito = resolverDistrito(((Number) location.get("lat")).doubleValue(),
+                    ((Number) location.get("lng")).doubleValue(),
+                    (List<Map<String, Object>>) firstResult.get("address_components"));
+            if (distrito != null) {
+                result.put("distrito", distrito);
             }
 
+            cache.guardarDirecta(direccion, result);
             return result;
 
         } catch (Exception e) {
@@ -145,6 +182,14 @@ public class GoogleMapsService {
     // GEOCODIFICACIÓN INVERSA (Coordenadas → Dirección)
     // ============================================================
     public Map<String, Object> geocodificarInverso(double lat, double lon) {
+    Map<String, Object> cacheado = cache.obtenerInversa(lat, lon);
+    if (cacheado != null) {
+        // La entrada cubre una celda de la grilla; se devuelven las coordenadas pedidas
+        cacheado.put("lat", lat);
+        cacheado.put("lon", lon);
+        return cacheado;
+    }
+
     Map<String, Object> result = new HashMap<>();
 
     try {
@@ -183,17 +228,14 @@ public class GoogleMapsService {
         result.put("lat", lat);
         result.put("lon", lon);
 
-        // Extraer distrito
-        List<Map<String, Object>> addressComponents = 
-            (List<Map<String, Object>>) firstResult.get("address_components");
-        
-        if (addressComponents != null) {
-            String distrito = extraerDistrito(addressComponents);
-            if (distrito != null) {
-                result.put("distrito", distrito);
-            }
+        // Distrito: primero el nomenclátor local, luego lo que diga Google
+        String distrito = resolverDistrito(lat, lon,
+            (List<Map<String, Object>>) firstResult.get("address_components"));
+        if (distrito != null) {
+            result.put("distrito", distrito);
         }
 
+        cache.guardarInversa(lat, lon, result);
         return result;
 
         } catch (Exception e) {
@@ -204,6 +246,31 @@ public class GoogleMapsService {
         }
     }
 
+    // ============================================================
+    // DISTRITO (Coordenadas → Distrito, sin red)
+    // ============================================================
+    public Map<String, Object> distritoLocal(double lat, double lon) {
+        Map<String, Object> result = new HashMap<>();
+        String distrito = gazetteer.resolver(lat, lon);
+        result.put("success", distrito != null);
+        result.put("lat", lat);
+        result.put("lon", lon);
+        if (distrito != null) {
+            result.put("distrito", distrito);
+        } else {
+            result.put("message", "Coordenadas fuera de los distritos conocidos");
+        }
+        return result;
+    }
+
+    private String resolverDistrito(double lat, double lon, List<Map<String, Object>> addressComponents) {
+        String distrito = gazetteer.resolver(lat, lon);
+        if (distrito == null && addressComponents != null) {
+            distrito = extraerDistrito(addressComponents);
+        }
+        return distrito;
+    }
+
     // ============================================================
     // HELPER: Extraer distrito de address_components
     // ============================================================
@@ -0,0 +1,49 @@
+package io.bootify.my_tiendita.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * Enlaza cambios en estructuras en memoria (colas, índices, buffers) con el
+ * resultado de la transacción actual, para que no se adelanten ni sobrevivan
+ * a un rollback.
+ */
+public class TransaccionUtils {
+
+    /**
+     * Ejecuta la acción cuando la transacción actual se confirma, o de inmediato
+     * si no hay transacción activa.
+     */
+    public static void despuesDelCommit(final Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
+    /**
+     * Ejecuta la acción solo si la transacción actual se revierte (incluido un
+     * fallo al hacer commit). Sin transacción activa no hace nada.
+     */
+    public static void siSeRevierte(final Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    accion.run();
+                }
+            }
+        });
+    }
+
+}
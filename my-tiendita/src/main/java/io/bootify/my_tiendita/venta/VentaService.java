@@ -5,6 +5,7 @@ import io.bootify.my_tiendita.bodegaConfig.BodegaConfig;
 import io.bootify.my_tiendita.bodegaConfig.BodegaConfigRepository;
 import io.bootify.my_tiendita.detalle_venta.*;
 import io.bootify.my_tiendita.inventario.InventarioService;
+import io.bootify.my_tiendita.inventario.InventarioService.SalidaVenta;
 import io.bootify.my_tiendita.model.MetodoEntrega;
 import io.bootify.my_tiendita.pago.BodegaMetodoPago;
 import io.bootify.my_tiendita.pago.BodegaMetodoPagoRepository;
@@ -16,14 +17,21 @@ import io.bootify.my_tiendita.events.BeforeDeleteVenta;
 import io.bootify.my_tiendita.util.CustomCollectors;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class VentaService {
@@ -36,6 +44,7 @@ public class VentaService {
     private final BodegaMetodoPagoRepository bodegaMetodoPagoRepository;
     private final InventarioService inventarioService;
     private final ApplicationEventPublisher publisher;
+    private final JdbcTemplate jdbcTemplate;
 
     public VentaService(
             VentaRepository ventaRepository,
@@ -45,7 +54,8 @@ public class VentaService {
             BodegaConfigRepository bodegaConfigRepository,
             BodegaMetodoPagoRepository bodegaMetodoPagoRepository,
             InventarioService inventarioService,
-            ApplicationEventPublisher publisher) {
+            ApplicationEventPublisher publisher,
+            JdbcTemplate jdbcTemplate) {
         this.ventaRepository = ventaRepository;
         this.detalleVentaRepository = detalleVentaRepository;
         this.productoBodegaRepository = productoBodegaRepository;
@@ -54,6 +64,7 @@ public class VentaService {
         this.bodegaMetodoPagoRepository = bodegaMetodoPagoRepository;
         this.inventarioService = inventarioService;
         this.publisher = publisher;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     // --- MÉTODOS DE LECTURA ---
@@ -102,35 +113,8 @@ public class VentaService {
         BigDecimal costoDelivery = BigDecimal.ZERO;
 
         if (ventaDTO.getTipoEntrega() == MetodoEntrega.DELIVERY) {
-
-            BodegaConfig config = bodegaConfigRepository.findByBodegaId(bodega.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Esta bodega no tiene configurado el delivery"));
-
-            if (Boolean.FALSE.equals(config.getRealizaDelivery())) {
-                throw new IllegalArgumentException("Esta bodega no realiza delivery actualmente");
-            }
-
-            if (ventaDTO.getLatitudEntrega() == null || ventaDTO.getLongitudEntrega() == null) {
-                throw new IllegalArgumentException("Se requieren coordenadas para el delivery");
-            }
-
-            double distanciaKm = GeoUtils.calcularDistanciaKm(
-                    bodega.getLatitud(), bodega.getLongitud(),
-                    ventaDTO.getLatitudEntrega(), ventaDTO.getLongitudEntrega()
-            );
-
-            if (config.getRadioMaximoKm() != null && BigDecimal.valueOf(distanciaKm).compareTo(config.getRadioMaximoKm()) > 0) {
-                throw new IllegalArgumentException("Tu ubicación está fuera del rango de reparto (" + config.getRadioMaximoKm() + " km)");
-            }
-
-            BigDecimal precioKm = config.getPrecioPorKm() != null ? config.getPrecioPorKm() : BigDecimal.ZERO;
-            costoDelivery = precioKm.multiply(BigDecimal.valueOf(distanciaKm));
-
-            venta.setCostoDelivery(costoDelivery);
-            venta.setLatitudEntrega(ventaDTO.getLatitudEntrega());
-            venta.setLongitudEntrega(ventaDTO.getLongitudEntrega());
-            venta.setDireccionEntrega(ventaDTO.getDireccionEntrega());
-
+            BodegaConfig config = bodegaConfigRepository.findByBodegaId(bodega.getId()).orElse(null);
+            costoDelivery = aplicarDelivery(venta, ventaDTO, bodega, config);
         } else {
             venta.setCostoDelivery(BigDecimal.ZERO);
         }
@@ -141,11 +125,12 @@ public class VentaService {
         BigDecimal totalProductos = BigDecimal.ZERO;
         List<DetalleVenta> detallesParaGuardar = new ArrayList<>();
 
-        if (ventaDTO.getProductos() == null || ventaDTO.getProductos().isEmpty()) {
+        List<DetalleVentaDTO> items = itemsDe(ventaDTO);
+        if (items.isEmpty()) {
             throw new IllegalArgumentException("El carrito no puede estar vacío");
         }
 
-        for (DetalleVentaDTO item : ventaDTO.getProductos()) {
+        for (DetalleVentaDTO item : items) {
             ProductoBodega pb = productoBodegaRepository.findById(item.getProductoBodegaId())
                     .orElseThrow(() -> new NotFoundException("Producto no encontrado: " + item.getProductoBodegaId()));
 
@@ -186,6 +171,110 @@ public class VentaService {
         return ventaGuardada.getId();
     }
 
+    // --- CREAR VARIAS VENTAS DE UNA BODEGA (CONFIRMACIÓN EN LOTE) ---
+    /**
+     * Mismas reglas que create, pero la bodega, su configuración, sus métodos de pago
+     * y todos los ProductoBodega se cargan una sola vez para todo el lote. Los detalles
+     * y los movimientos de inventario se insertan con batch JDBC; las ventas se
+     * insertan una a una porque su ID es IDENTITY y se necesita para los detalles.
+     * Si una venta no cumple las reglas, falla el lote completo.
+     *
+     * @return IDs de las ventas, en el mismo orden recibido
+     */
+    @Transactional
+    public List<Long> crearEnLote(final Long bodegaId, final List<VentaDTO> ventasDTO) {
+        if (ventasDTO.isEmpty()) return List.of();
+
+        Bodega bodega = bodegaRepository.findById(bodegaId)
+                .orElseThrow(() -> new NotFoundException("Bodega no encontrada"));
+        BodegaConfig config = bodegaConfigRepository.findByBodegaId(bodegaId).orElse(null);
+        Map<Long, BodegaMetodoPago> metodosPago = bodegaMetodoPagoRepository.findByBodegaId(bodegaId).stream()
+                .collect(Collectors.toMap(BodegaMetodoPago::getId, Function.identity()));
+
+        Set<Long> productoIds = new HashSet<>();
+        for (VentaDTO ventaDTO : ventasDTO) {
+            for (DetalleVentaDTO item : itemsDe(ventaDTO)) {
+                productoIds.add(item.getProductoBodegaId());
+            }
+        }
+        Map<Long, ProductoBodega> productos = productoBodegaRepository.findAllById(productoIds).stream()
+                .collect(Collectors.toMap(ProductoBodega::getId, Function.identity()));
+
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> detalles = new ArrayList<>();
+        List<SalidaVenta> salidas = new ArrayList<>();
+        Timestamp ahora = Timestamp.from(OffsetDateTime.now().toInstant());
+
+        for (VentaDTO ventaDTO : ventasDTO) {
+            BodegaMetodoPago metodoPagoConfig = metodosPago.get(ventaDTO.getBodegaMetodoPagoId());
+            if (metodoPagoConfig == null) {
+                throw new NotFoundException("Método de pago no válido");
+            }
+
+            final Venta venta = new Venta();
+            venta.setFecha(LocalDateTime.now());
+            venta.setEstado("COMPLETADA");
+            venta.setTipoMetodoPago(metodoPagoConfig.getTipoMetodoPago());
+            venta.setTipoEntrega(ventaDTO.getTipoEntrega());
+            venta.setBodegaMetodoPago(metodoPagoConfig);
+            venta.setClienteNombre(ventaDTO.getNombreCliente() != null
+                    ? ventaDTO.getNombreCliente() : ventaDTO.getClienteNombre());
+
+            List<DetalleVentaDTO> items = itemsDe(ventaDTO);
+            if (items.isEmpty()) {
+                throw new IllegalArgumentException("El carrito no puede estar vacío");
+            }
+
+            BigDecimal totalProductos = BigDecimal.ZERO;
+            List<ProductoBodega> lineas = new ArrayList<>();
+            for (DetalleVentaDTO item : items) {
+                ProductoBodega pb = productos.get(item.getProductoBodegaId());
+                if (pb == null) {
+                    throw new NotFoundException("Producto no encontrado: " + item.getProductoBodegaId());
+                }
+                if (!pb.getBodega().getId().equals(bodega.getId())) {
+                    throw new IllegalArgumentException("El producto " + pb.getProducto().getNombre() + " es de otra bodega");
+                }
+                lineas.add(pb);
+                totalProductos = totalProductos.add(pb.getPrecioBodeguero().multiply(BigDecimal.valueOf(item.getCantidad())));
+            }
+
+            BigDecimal costoDelivery = BigDecimal.ZERO;
+            if (ventaDTO.getTipoEntrega() == MetodoEntrega.DELIVERY) {
+                costoDelivery = aplicarDelivery(venta, ventaDTO, bodega, config);
+                if (config.getPedidoMinimoDelivery() != null
+                        && totalProductos.compareTo(config.getPedidoMinimoDelivery()) < 0) {
+                    throw new IllegalArgumentException("El pedido mínimo para delivery es S/ " + config.getPedidoMinimoDelivery());
+                }
+            } else {
+                venta.setCostoDelivery(BigDecimal.ZERO);
+            }
+
+            // Con el total ya calculado basta un INSERT por venta (sin el UPDATE de monto)
+            venta.setMonto(totalProductos.add(costoDelivery));
+            Long ventaId = ventaRepository.save(venta).getId();
+            ids.add(ventaId);
+
+            for (int i = 0; i < items.size(); i++) {
+                DetalleVentaDTO item = items.get(i);
+                ProductoBodega pb = lineas.get(i);
+                BigDecimal subtotal = pb.getPrecioBodeguero().multiply(BigDecimal.valueOf(item.getCantidad()));
+                detalles.add(new Object[]{item.getCantidad(), pb.getPrecioBodeguero(), subtotal,
+                        ventaId, pb.getId(), ahora, ahora});
+                salidas.add(new SalidaVenta(pb, item.getCantidad(), ventaId));
+            }
+        }
+
+        // Descuenta stock (valida el acumulado de todo el lote) y registra los movimientos
+        inventarioService.registrarSalidasPorVentaEnLote(salidas);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO detalle_venta (cantidad, precio_unitario, subtotal, venta_id, producto_bodega_id, date_created, last_updated) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                detalles);
+
+        return ids;
+    }
+
     @Transactional
     public void anular(final Long id) {
         final Venta venta = ventaRepository.findById(id)
@@ -221,6 +310,44 @@ public class VentaService {
         ventaRepository.delete(venta);
     }
 
+    // Costo y datos de entrega de una venta DELIVERY (misma validación que create)
+    private BigDecimal aplicarDelivery(Venta venta, VentaDTO ventaDTO, Bodega bodega, BodegaConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Esta bodega no tiene configurado el delivery");
+        }
+        if (Boolean.FALSE.equals(config.getRealizaDelivery())) {
+            throw new IllegalArgumentException("Esta bodega no realiza delivery actualmente");
+        }
+        if (ventaDTO.getLatitudEntrega() == null || ventaDTO.getLongitudEntrega() == null) {
+            throw new IllegalArgumentException("Se requieren coordenadas para el delivery");
+        }
+
+        double distanciaKm = GeoUtils.calcularDistanciaKm(
+                bodega.getLatitud(), bodega.getLongitud(),
+                ventaDTO.getLatitudEntrega(), ventaDTO.getLongitudEntrega()
+        );
+        if (config.getRadioMaximoKm() != null && BigDecimal.valueOf(distanciaKm).compareTo(config.getRadioMaximoKm()) > 0) {
+            throw new IllegalArgumentException("Tu ubicación está fuera del rango de reparto (" + config.getRadioMaximoKm() + " km)");
+        }
+
+        BigDecimal precioKm = config.getPrecioPorKm() != null ? config.getPrecioPorKm() : BigDecimal.ZERO;
+        BigDecimal costoDelivery = precioKm.multiply(BigDecimal.valueOf(distanciaKm));
+
+        venta.setCostoDelivery(costoDelivery);
+        venta.setLatitudEntrega(ventaDTO.getLatitudEntrega());
+        venta.setLongitudEntrega(ventaDTO.getLongitudEntrega());
+        venta.setDireccionEntrega(ventaDTO.getDireccionEntrega());
+        return costoDelivery;
+    }
+
+    // El carrito llega en "productos"; la confirmación de pedidos lo arma en "detalles"
+    private static List<DetalleVentaDTO> itemsDe(VentaDTO ventaDTO) {
+        if (ventaDTO.getProductos() != null && !ventaDTO.getProductos().isEmpty()) {
+            return ventaDTO.getProductos();
+        }
+        return ventaDTO.getDetalles() != null ? ventaDTO.getDetalles() : List.of();
+    }
+
     // --- MAPPER ---
     private VentaDTO mapToDTO(final Venta venta, final VentaDTO ventaDTO) {
         ventaDTO.setId(venta.getId());
@@ -410,6 +410,12 @@
   }
 
   async function geocodificarInverso(lat, lon) {
+    // El distrito se resuelve localmente (sin Google) y se muestra al instante
+    fetch(`/api/google-maps/distrito?lat=${lat}&lon=${lon}`)
+      .then(r => r.json())
+      .then(d => { if (d.success && d.distrito) document.getElementById("distrito").value = d.distrito; })
+      .catch(() => {});
+
     try {
       const res = await fetch(`/api/google-maps/reverse?lat=${lat}&lon=${lon}`);
       const data = await res.json();
@@ -6,18 +6,15 @@ function iniciarPollingNotificaciones() {
 }
 
 function actualizarBadge() {
-    fetch('/api/notificaciones/mis-alertas')
+    // 1. Contador de no leídas (se mantiene en memoria en el servidor, no hace COUNT)
+    fetch('/api/notificaciones/unread-count')
         .then(response => {
             if (!response.ok) throw new Error("Error red");
             return response.json();
         })
-        .then(notificaciones => {
-            // Buscamos los elementos en el DOM (Deben estar en tu navbar)
-            const badge = document.getElementById('notifBadge'); 
-            const lista = document.getElementById('notifList');
-            
-            // 1. Contar no leídas
-            const noLeidas = notificaciones.filter(n => !n.leido).length;
+        .then(data => {
+            const badge = document.getElementById('notifBadge');
+            const noLeidas = data.noLeidas;
 
             // 2. Actualizar Badge (Bolita Roja)
             if (badge) {
@@ -30,21 +27,32 @@ function actualizarBadge() {
                     badge.classList.add('d-none');
                 }
             }
+        })
+        .catch(e => console.error("Polling error:", e));
 
-            // 3. Lllenar Lista del Dropdown (PILA VISUAL)
+    // 3. Solo las 5 últimas para el dropdown
+    fetch('/api/notificaciones/mis-alertas?limite=5')
+        .then(response => {
+            if (!response.ok) throw new Error("Error red");
+            return response.json();
+        })
+        .then(notificaciones => {
+            const lista = document.getElementById('notifList');
+
+            // Lllenar Lista del Dropdown (PILA VISUAL)
             if (lista) {
                 if (notificaciones.length === 0) {
                     lista.innerHTML = '<li><span class="dropdown-item text-muted text-center py-3">Sin notificaciones</span></li>';
                 } else {
                     let html = '';
                     // El backend ya devuelve la lista ordenada (LIFO), así que solo iteramos
-                    notificaciones.slice(0, 5).forEach(n => { // Mostramos solo las 5 últimas
+                    notificaciones.forEach(n => {
                         const bgClass = n.leido ? '' : 'bg-light fw-bold';
                         const icono = n.tipo === 'PEDIDO' ? '<i class="bi bi-cart-plus text-primary"></i>' : '<i class="bi bi-info-circle"></i>';
                         
                         html += `
                             <li>
-                                <a class="dropdown-item ${bgClass} border-bottom py-2" href="${n.urlDestino}">
+                                <a class="dropdown-item ${bgClass} border-bottom py-2" href="${n.urlDestino}" onclick="marcarLeida(${n.id}, ${n.leido})">
                                     <div class="d-flex align-items-center gap-2">
                                         ${icono}
                                         <div>
@@ -64,5 +72,12 @@ function actualizarBadge() {
         .catch(e => console.error("Polling error:", e));
 }
 
+// Al abrir una notificación se marca como leída (keepalive: la página está por cambiar)
+function marcarLeida(id, leido) {
+    if (leido) return;
+    fetch(`/api/notificaciones/${id}/leida`, { method: 'POST', keepalive: true })
+        .catch(e => console.error("Error al marcar leída:", e));
+}
+
 // Auto-iniciar cuando el DOM esté listo
 document.addEventListener("DOMContentLoaded", iniciarPollingNotificaciones);
\ No newline at end of file
@@ -26,8 +26,67 @@ document.addEventListener("DOMContentLoaded", () => {
             text: errorMsg
         });
     }
+
+    suscribirEventosCola();
 });
 
+/**
+ * Eventos de la cola en vivo (SSE): en vez de hacer polling, el servidor avisa
+ * cuando llega, se confirma o se cancela un pedido y la vista se refresca.
+ */
+function suscribirEventosCola() {
+    if (typeof BODEGA_ID === 'undefined' || !BODEGA_ID || !window.EventSource) return;
+
+    let recargaPendiente = false;
+    const recargar = () => {
+        // No interrumpir al bodeguero si está armando un pedido manual o confirmando
+        if (document.querySelector('.modal.show') || Swal.isVisible()) {
+            recargaPendiente = true;
+            return;
+        }
+        window.location.reload();
+    };
+
+    document.addEventListener('hidden.bs.modal', () => { if (recargaPendiente) recargar(); });
+
+    const fuente = new EventSource(`/bodeguero/pedidos/eventos?bodegaId=${BODEGA_ID}`);
+    fuente.addEventListener('ENCOLADO', (e) => {
+        const pedido = JSON.parse(e.data);
+        Swal.fire({
+            toast: true,
+            position: 'top-end',
+            icon: 'info',
+            title: 'Nuevo pedido #' + pedido.codigoPedido,
+            timer: 1500,
+            showConfirmButton: false
+        }).then(recargar);
+    });
+    fuente.addEventListener('CONFIRMADO', recargar);
+    fuente.addEventListener('CANCELADO', recargar);
+    fuente.addEventListener('EXPIRADO', recargar);
+}
+
+/**
+ * Rechazar (cancelar) el pedido siguiente
+ */
+function confirmarCancelacion(event) {
+    event.preventDefault();
+    const form = event.target.closest('form');
+
+    Swal.fire({
+        title: '¿Rechazar este pedido?',
+        text: 'El pedido saldrá de la cola y se avisará al cliente.',
+        icon: 'warning',
+        showCancelButton: true,
+        confirmButtonColor: '#EF4444',
+        cancelButtonColor: '#64748b',
+        confirmButtonText: 'Sí, rechazar',
+        cancelButtonText: 'Volver'
+    }).then((result) => {
+        if (result.isConfirmed) form.submit();
+    });
+}
+
 /**
  * Confirmar atención del pedido siguiente (FIFO)
  */
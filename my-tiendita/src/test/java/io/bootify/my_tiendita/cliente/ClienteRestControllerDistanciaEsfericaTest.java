@@ -0,0 +1,153 @@
+package io.bootify.my_tiendita.cliente;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import io.bootify.my_tiendita.bodega.Bodega;
+import io.bootify.my_tiendita.bodega.BodegaRepository;
+import io.bootify.my_tiendita.cliente.ClienteRestController.BodegaCercanaDTO;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * La estrategia "mysql" (ST_Distance_Sphere) y la "haversine" deben devolver las
+ * mismas bodegas, en el mismo orden y con la misma distancia.
+ *
+ * H2 no trae funciones espaciales: se registran como alias Java que siguen la
+ * definición de MySQL (esfera de radio 6370986 m), y la columna ubicacion se
+ * genera como WKT en lugar de POINT.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:distancia;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "bodegas.cercanas.prefiltro=bd",
+        "pedidos.codigo.nodo=1",
+        "upload.path=target/uploads",
+        "google.maps.api-key=prueba",
+        "miapi.token=prueba",
+        "miapi.url.dni=http://localhost/dni",
+        "miapi.url.ruc=http://localhost/ruc"
+})
+class ClienteRestControllerDistanciaEsfericaTest {
+
+    private static final double LAT = -6.7714;
+    private static final double LNG = -79.8411;
+
+    @Autowired
+    private ClienteRestController clienteRestController;
+
+    @Autowired
+    private BodegaRepository bodegaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void prepararBaseDeDatos() {
+        final String funciones = FuncionesMysql.class.getName();
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS ST_GeomFromText FOR \"" + funciones + ".geomFromText\"");
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS MBRContains FOR \"" + funciones + ".mbrContains\"");
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS ST_Distance_Sphere FOR \"" + funciones + ".distanciaEsfera\"");
+        jdbcTemplate.execute("ALTER TABLE bodegas ADD COLUMN IF NOT EXISTS ubicacion VARCHAR(100) " +
+                "GENERATED ALWAYS AS ('POINT(' || longitud || ' ' || latitud || ')')");
+
+        if (bodegaRepository.count() > 0) {
+            return;
+        }
+        // Bodegas repartidas hasta ~15 km del origen, algunas inactivas
+        final Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            final Bodega bodega = new Bodega();
+            bodega.setNombre("Bodega " + i);
+            bodega.setDireccion("Calle " + i);
+            bodega.setLatitud(LAT + (random.nextDouble() - 0.5) * 0.27);
+            bodega.setLongitud(LNG + (random.nextDouble() - 0.5) * 0.27);
+            bodega.setActivo(i % 10 != 0);
+            bodegaRepository.save(bodega);
+        }
+    }
+
+    @Test
+    void obtenerBodegasCercanas_mysqlYHaversine_mismasBodegasOrdenYDistancia() {
+        for (final int radio : new int[] { 2000, 5000, 8000 }) {
+            final List<BodegaCercanaDTO> haversine = buscar("haversine", radio);
+            final List<BodegaCercanaDTO> esferica = buscar("mysql", radio);
+
+            assertThat(haversine).isNotEmpty();
+            assertThat(esferica).extracting(BodegaCercanaDTO::getId)
+                    .containsExactlyElementsOf(haversine.stream().map(BodegaCercanaDTO::getId).toList());
+            for (int i = 0; i < haversine.size(); i++) {
+                // La diferencia de radio terrestre (6371 km vs 6370.986 km) queda por debajo de 1 m
+                assertThat(esferica.get(i).getDistanciaKm())
+                        .isCloseTo(haversine.get(i).getDistanciaKm(), within(0.001));
+                assertThat(esferica.get(i).getDistanciaKm()).isLessThanOrEqualTo(radio / 1000.0);
+            }
+        }
+    }
+
+    private List<BodegaCercanaDTO> buscar(final String estrategia, final int radio) {
+        ReflectionTestUtils.setField(clienteRestController, "estrategia", estrategia);
+        try {
+            return clienteRestController.obtenerBodegasCercanas(LAT, LNG, radio);
+        } finally {
+            ReflectionTestUtils.setField(clienteRestController, "estrategia", "haversine");
+        }
+    }
+
+    /**
+     * Equivalentes en Java de las funciones espaciales de MySQL usadas por
+     * BodegaRepository.findCercanasPorDistanciaEsferica, con geometrías como WKT.
+     */
+    public static class FuncionesMysql {
+
+        // Radio que usa MySQL por defecto en ST_Distance_Sphere
+        private static final double RADIO_ESFERA_METROS = 6370986;
+
+        public static String geomFromText(final String wkt, final int srid, final String opciones) {
+            return wkt;
+        }
+
+        public static boolean mbrContains(final String caja, final String punto) {
+            final double[] esquinas = coordenadas(caja);
+            final double[] p = coordenadas(punto);
+            double lonMin = Double.MAX_VALUE, lonMax = -Double.MAX_VALUE;
+            double latMin = Double.MAX_VALUE, latMax = -Double.MAX_VALUE;
+            for (int i = 0; i < esquinas.length; i += 2) {
+                lonMin = Math.min(lonMin, esquinas[i]);
+                lonMax = Math.max(lonMax, esquinas[i]);
+                latMin = Math.min(latMin, esquinas[i + 1]);
+                latMax = Math.max(latMax, esquinas[i + 1]);
+            }
+            return p[0] > lonMin && p[0] < lonMax && p[1] > latMin && p[1] < latMax;
+        }
+
+        public static double distanciaEsfera(final String a, final String b) {
+            final double[] p1 = coordenadas(a);
+            final double[] p2 = coordenadas(b);
+            final double lat1 = Math.toRadians(p1[1]);
+            final double lat2 = Math.toRadians(p2[1]);
+            final double sinDLat = Math.sin((lat2 - lat1) / 2);
+            final double sinDLon = Math.sin(Math.toRadians(p2[0] - p1[0]) / 2);
+            final double h = sinDLat * sinDLat + Math.cos(lat1) * Math.cos(lat2) * sinDLon * sinDLon;
+            return 2 * RADIO_ESFERA_METROS * Math.asin(Math.min(1, Math.sqrt(h)));
+        }
+
+        // "POINT(lon lat)" o "POLYGON((lon lat, ...))" -> {lon, lat, lon, lat, ...}
+        private static double[] coordenadas(final String wkt) {
+            final String[] valores = wkt.replaceAll("[^0-9eE.,\\- ]", " ").trim().split("[,\\s]+");
+            final double[] coordenadas = new double[valores.length];
+            for (int i = 0; i < valores.length; i++) {
+                coordenadas[i] = Double.parseDouble(valores[i]);
+            }
+            return coordenadas;
+        }
+
+    }
+
+}
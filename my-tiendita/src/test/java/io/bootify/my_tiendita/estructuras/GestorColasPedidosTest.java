@@ -0,0 +1,205 @@
+package io.bootify.my_tiendita.estructuras;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.bootify.my_tiendita.model.MetodoEntrega;
+import io.bootify.my_tiendita.model.PoliticaCola;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class GestorColasPedidosTest {
+
+    private static final Long BODEGA = 1L;
+    private static final OffsetDateTime INICIO = OffsetDateTime.parse("2025-06-01T12:00:00Z");
+
+    @Test
+    void encolarQuitarDesencolar_variosHilos_cadaPedidoSaleUnaSolaVez() throws Exception {
+        final GestorColasPedidos gestor = new GestorColasPedidos();
+        final int productores = 4;
+        final int porProductor = 5_000;
+        final int total = productores * porProductor;
+        final Set<Long> sacados = ConcurrentHashMap.newKeySet();
+        final AtomicInteger repetidos = new AtomicInteger();
+        final AtomicBoolean produciendo = new AtomicBoolean(true);
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService hilos = Executors.newFixedThreadPool(productores + 4);
+        try {
+            final List<Future<?>> tareasProductoras = new ArrayList<>();
+            for (int p = 0; p < productores; p++) {
+                final long base = (long) p * porProductor;
+                tareasProductoras.add(hilos.submit(() -> {
+                    salida.await();
+                    for (long i = 1; i <= porProductor; i++) {
+                        gestor.encolar(BODEGA, pedido(base + i, base + i));
+                    }
+                    return null;
+                }));
+            }
+            final List<Future<?>> tareasConsumidoras = new ArrayList<>();
+            // Dos hilos confirman (desencolar) y dos cancelan pedidos al azar (quitar)
+            for (int c = 0; c < 4; c++) {
+                final boolean cancela = c % 2 == 1;
+                tareasConsumidoras.add(hilos.submit(() -> {
+                    salida.await();
+                    while (produciendo.get() || sacados.size() < total) {
+                        final PedidoEnCola sacado = cancela
+                                ? gestor.quitar(BODEGA, ThreadLocalRandom.current().nextLong(1, total + 1))
+                                : gestor.desencolar(BODEGA);
+                        if (sacado != null && !sacados.add(sacado.id())) {
+                            repetidos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (final Future<?> tarea : tareasProductoras) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+            produciendo.set(false);
+            for (final Future<?> tarea : tareasConsumidoras) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(repetidos.get()).isZero();
+        assertThat(sacados).hasSize(total);
+        assertThat(gestor.desencolar(BODEGA)).isNull();
+    }
+
+    @Test
+    void desencolar_variosHilos_cadaHiloVeElOrdenDeLlegada() throws Exception {
+        final GestorColasPedidos gestor = new GestorColasPedidos();
+        final int total = 20_000;
+        final List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= total; i++) {
+            ids.add(i);
+        }
+        // Se encolan desordenados: el orden lo da la fecha de creación, no la llegada a la cola
+        Collections.shuffle(ids, new Random(42));
+        for (final Long id : ids) {
+            gestor.encolar(BODEGA, pedido(id, id));
+        }
+
+        final ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<Long>>> resultados = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                resultados.add(hilos.submit(() -> {
+                    final List<Long> vistos = new ArrayList<>();
+                    PedidoEnCola siguiente;
+                    while ((siguiente = gestor.desencolar(BODEGA)) != null) {
+                        vistos.add(siguiente.id());
+                    }
+                    return vistos;
+                }));
+            }
+            int sacados = 0;
+            for (final Future<List<Long>> resultado : resultados) {
+                final List<Long> vistos = resultado.get(30, TimeUnit.SECONDS);
+                assertThat(vistos).isSorted();
+                sacados += vistos.size();
+            }
+            assertThat(sacados).isEqualTo(total);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void quitar_pedidoCualquiera_mantieneElOrdenDelResto() {
+        final GestorColasPedidos gestor = new GestorColasPedidos();
+        final List<Long> esperados = new ArrayList<>();
+        for (long i = 1; i <= 1_000; i++) {
+            gestor.encolar(BODEGA, pedido(i, 1_000 - i));
+            esperados.add(i);
+        }
+        final Random azar = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            final Long id = esperados.remove(azar.nextInt(esperados.size()));
+            assertThat(gestor.quitar(BODEGA, id).id()).isEqualTo(id);
+        }
+        // Fechas inversas al ID: primero sale el de mayor ID
+        esperados.sort(Collections.reverseOrder());
+
+        final List<Long> extraidos = new ArrayList<>();
+        PedidoEnCola siguiente;
+        while ((siguiente = gestor.desencolar(BODEGA)) != null) {
+            extraidos.add(siguiente.id());
+        }
+        assertThat(extraidos).isEqualTo(esperados);
+    }
+
+    @Test
+    void configurarOrden_prioridad_atiendePrimeroLaHoraObjetivoMasTemprana() {
+        final GestorColasPedidos gestor = new GestorColasPedidos();
+        // Recojo creado antes, pero con objetivo a los 30 min; delivery a los 15 min
+        gestor.encolar(BODEGA, pedido(1L, 0, MetodoEntrega.RECOJO_EN_BODEGA));
+        gestor.encolar(BODEGA, pedido(2L, 10, MetodoEntrega.DELIVERY));
+        assertThat(gestor.verSiguiente(BODEGA).id()).isEqualTo(1L);
+
+        gestor.configurarOrden(BODEGA, GestorColasPedidos.ordenPara(PoliticaCola.PRIORIDAD, null, null));
+
+        assertThat(gestor.desencolar(BODEGA).id()).isEqualTo(2L);
+        assertThat(gestor.desencolar(BODEGA).id()).isEqualTo(1L);
+    }
+
+    @Test
+    void hidratar_variosHilos_cargaUnaSolaVezSinDuplicar() throws Exception {
+        final GestorColasPedidos gestor = new GestorColasPedidos();
+        // Llegó por checkout antes de hidratar; la BD también lo trae
+        gestor.encolar(BODEGA, pedido(1L, 1));
+        final AtomicInteger cargas = new AtomicInteger();
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < 8; h++) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    gestor.hidratar(BODEGA, () -> {
+                        cargas.incrementAndGet();
+                        return List.of(pedido(1L, 1), pedido(2L, 2), pedido(3L, 3));
+                    });
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (final Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(cargas.get()).isEqualTo(1);
+        assertThat(gestor.estaHidratada(BODEGA)).isTrue();
+        assertThat(gestor.obtenerCola(BODEGA)).extracting(PedidoEnCola::id).containsExactly(1L, 2L, 3L);
+    }
+
+    private static PedidoEnCola pedido(final Long id, final long minuto) {
+        return pedido(id, minuto, MetodoEntrega.DELIVERY);
+    }
+
+    private static PedidoEnCola pedido(final Long id, final long minuto, final MetodoEntrega entrega) {
+        return new PedidoEnCola(id, "PED-" + id, BigDecimal.TEN, INICIO.plusMinutes(minuto), "Cliente " + id, entrega);
+    }
+
+}
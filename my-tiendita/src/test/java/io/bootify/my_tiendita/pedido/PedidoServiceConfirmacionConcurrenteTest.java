@@ -0,0 +1,185 @@
+package io.bootify.my_tiendita.pedido;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.bootify.my_tiendita.bodega.Bodega;
+import io.bootify.my_tiendita.bodega.BodegaRepository;
+import io.bootify.my_tiendita.events.PedidoColaEvento;
+import io.bootify.my_tiendita.model.EstadoPedido;
+import io.bootify.my_tiendita.usuario.Usuario;
+import io.bootify.my_tiendita.usuario.UsuarioRepository;
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Varios bodegueros confirmando a la vez con la cola en BD (SKIP LOCKED):
+ * cada pedido pendiente debe confirmarse exactamente una vez.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:confirmacion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "pedidos.cola.modo=bd",
+        "pedidos.cola.precarga=false",
+        "pedidos.codigo.nodo=1",
+        "upload.path=target/uploads",
+        "google.maps.api-key=prueba",
+        "miapi.token=prueba",
+        "miapi.url.dni=http://localhost/dni",
+        "miapi.url.ruc=http://localhost/ruc"
+})
+class PedidoServiceConfirmacionConcurrenteTest {
+
+    private static final int PEDIDOS = 40;
+    private static final int CONFIRMADORES = 8;
+
+    // La conversión a venta no es parte de esta prueba
+    @MockitoBean
+    private ProcesadorPedidoOutbox procesadorOutbox;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoOutboxRepository outboxRepository;
+
+    @Autowired
+    private BodegaRepository bodegaRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConfirmacionesRegistradas confirmaciones;
+
+    @Test
+    void confirmarSiguientePedido_variosConfirmadores_cadaPendienteSeConfirmaUnaVez() throws Exception {
+        final Bodega bodega = crearBodega();
+        final List<Long> ids = crearPendientes(bodega);
+
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService hilos = Executors.newFixedThreadPool(CONFIRMADORES);
+        try {
+            final List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < CONFIRMADORES; h++) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    while (pendientes(bodega.getId()) > 0) {
+                        try {
+                            pedidoService.confirmarSiguientePedido(bodega.getId());
+                        } catch (final IllegalArgumentException e) {
+                            // Cola vacía para este hilo: las filas restantes están bloqueadas por otros
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (final Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(confirmaciones.porPedido.keySet()).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(confirmaciones.porPedido.values()).allSatisfy(veces -> assertThat(veces.get()).isEqualTo(1));
+        assertThat(pedidoRepository.findAllById(ids))
+                .allSatisfy(pedido -> assertThat(pedido.getEstado()).isEqualTo(EstadoPedido.EN_PREPARACION));
+        assertThat(outboxRepository.countByEstado(PedidoOutbox.PENDIENTE)).isEqualTo(PEDIDOS);
+    }
+
+    private long pendientes(final Long bodegaId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pedidos WHERE bodega_id = ? AND estado = 'PENDIENTE'", Long.class, bodegaId);
+    }
+
+    private Bodega crearBodega() {
+        final Usuario bodeguero = new Usuario();
+        bodeguero.setNombre("Bodeguero");
+        bodeguero.setEmail("bodeguero@prueba.pe");
+        bodeguero.setPassword("x");
+        usuarioRepository.save(bodeguero);
+
+        final Bodega bodega = new Bodega();
+        bodega.setNombre("Bodega Prueba");
+        bodega.setDireccion("Av. Balta 123");
+        bodega.setLatitud(-6.7714);
+        bodega.setLongitud(-79.8411);
+        bodega.setActivo(true);
+        bodega.setUsuario(bodeguero);
+        return bodegaRepository.save(bodega);
+    }
+
+    private List<Long> crearPendientes(final Bodega bodega) {
+        final Usuario cliente = new Usuario();
+        cliente.setNombre("Cliente");
+        cliente.setEmail("cliente@prueba.pe");
+        cliente.setPassword("x");
+        usuarioRepository.save(cliente);
+
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            final Pedido pedido = new Pedido();
+            pedido.setCodigoPedido("PED-PRUEBA-" + i);
+            pedido.setFechaPedido(LocalTime.now());
+            pedido.setEstado(EstadoPedido.PENDIENTE);
+            pedido.setTotal(BigDecimal.TEN);
+            pedido.setUsuario(cliente);
+            pedido.setBodega(bodega);
+            ids.add(pedidoRepository.save(pedido).getId());
+        }
+        return ids;
+    }
+
+    @TestConfiguration
+    static class Configuracion {
+
+        @Bean
+        ConfirmacionesRegistradas confirmacionesRegistradas() {
+            return new ConfirmacionesRegistradas();
+        }
+
+    }
+
+    /**
+     * Cuenta las confirmaciones que llegaron a hacer commit, por pedido.
+     */
+    static class ConfirmacionesRegistradas {
+
+        final Map<Long, AtomicInteger> porPedido = new ConcurrentHashMap<>();
+
+        @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+        public void on(final PedidoColaEvento evento) {
+            if (PedidoColaEvento.CONFIRMADO.equals(evento.getTipo())) {
+                porPedido.computeIfAbsent(evento.getPedidoId(), id -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.bootify.my_tiendita.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class GeneradorCodigoPedidoTest {
+
+    private static final int HILOS = 8;
+    private static final int IDS_POR_HILO = 200_000;
+
+    @Test
+    void siguienteId_variosHilos_noRepiteIds() throws Exception {
+        final GeneradorCodigoPedido generador = new GeneradorCodigoPedido(7, "memoria", null);
+        final CountDownLatch salida = new CountDownLatch(1);
+        final ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            final List<Future<long[]>> resultados = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                resultados.add(hilos.submit(() -> {
+                    salida.await();
+                    final long[] ids = new long[IDS_POR_HILO];
+                    for (int i = 0; i < IDS_POR_HILO; i++) {
+                        ids[i] = generador.siguienteId();
+                    }
+                    return ids;
+                }));
+            }
+            salida.countDown();
+
+            final long[] todos = new long[HILOS * IDS_POR_HILO];
+            int pos = 0;
+            for (final Future<long[]> resultado : resultados) {
+                final long[] ids = resultado.get();
+                // Dentro de un hilo los IDs salen crecientes
+                for (int i = 1; i < ids.length; i++) {
+                    assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+                }
+                System.arraycopy(ids, 0, todos, pos, ids.length);
+                pos += ids.length;
+            }
+            assertThat(Arrays.stream(todos).distinct().count()).isEqualTo(todos.length);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void siguienteId_nodosDistintos_noColisionan() {
+        final GeneradorCodigoPedido nodoA = new GeneradorCodigoPedido(1, "bd", null);
+        final GeneradorCodigoPedido nodoB = new GeneradorCodigoPedido(2, "bd", null);
+        final long[] ids = new long[20_000];
+        for (int i = 0; i < ids.length; i += 2) {
+            ids[i] = nodoA.siguienteId();
+            ids[i + 1] = nodoB.siguienteId();
+        }
+        assertThat(Arrays.stream(ids).distinct().count()).isEqualTo(ids.length);
+    }
+
+    @Test
+    void generar_usaPrefijoYTreceCaracteresCrockford() {
+        final GeneradorCodigoPedido generador = new GeneradorCodigoPedido(0, "memoria", null);
+        assertThat(generador.generar("PED")).matches("PED-[0-9A-HJKMNP-TV-Z]{13}");
+    }
+
+    @Test
+    void continuarDesde_relojAtrasado_noRetrocede() {
+        final GeneradorCodigoPedido generador = new GeneradorCodigoPedido(3, "memoria", null);
+        // Último pedido guardado "en el futuro": el reloj retrocedió durante el reinicio
+        final long ultimoPedido = System.currentTimeMillis() + 60_000;
+        generador.continuarDesde(ultimoPedido);
+        assertThat(GeneradorCodigoPedido.milisegundoDe(generador.siguienteId())).isGreaterThan(ultimoPedido);
+    }
+
+    @Test
+    void constructor_colaEnBdSinNodo_fallaAlArrancar() {
+        assertThatThrownBy(() -> new GeneradorCodigoPedido(-1, "bd", null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void constructor_nodoFueraDeRango_esRechazado() {
+        assertThatThrownBy(() -> new GeneradorCodigoPedido(1024, "memoria", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.bootify.my_tiendita.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compara el núcleo en lote de {@link GeoUtils.PuntoOrigen} con la implementación
+ * anterior por llamada (Haversine completo por candidato y distancias en {@code Double}).
+ *
+ * No corre con {@code mvn test}; se ejecuta con el main en una JVM aparte, por ejemplo:
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * "-Dexec.args=-cp %classpath io.bootify.my_tiendita.util.GeoUtilsBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoUtilsBenchmark {
+
+    private static final double LAT = -6.7714;
+    private static final double LNG = -79.8411;
+    private static final double RADIO_KM = 5.0;
+
+    @Param({ "100", "1000", "10000" })
+    private int candidatos;
+
+    private double[] lats;
+    private double[] lons;
+    private double[] distancias;
+
+    @Setup
+    public void preparar() {
+        // Candidatos dentro de la caja envolvente de ~15 km, como los que devuelve el prefiltro
+        final Random random = new Random(42);
+        lats = new double[candidatos];
+        lons = new double[candidatos];
+        distancias = new double[candidatos];
+        for (int i = 0; i < candidatos; i++) {
+            lats[i] = LAT + (random.nextDouble() - 0.5) * 0.27;
+            lons[i] = LNG + (random.nextDouble() - 0.5) * 0.27;
+        }
+    }
+
+    @Benchmark
+    public List<Double> porLlamada() {
+        final List<Double> dentro = new ArrayList<>();
+        for (int i = 0; i < candidatos; i++) {
+            final double distancia = haversineAnterior(LAT, LNG, lats[i], lons[i]);
+            if (distancia <= RADIO_KM) {
+                dentro.add(distancia);
+            }
+        }
+        return dentro;
+    }
+
+    @Benchmark
+    public double[] enLote() {
+        new GeoUtils.PuntoOrigen(LAT, LNG).distanciasEnRadio(lats, lons, candidatos, RADIO_KM, distancias);
+        return distancias;
+    }
+
+    // Implementación previa de ClienteRestController.calcularDistancia
+    private static double haversineAnterior(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return 6371 * c;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeoUtilsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}